@@ -0,0 +1,108 @@
+package com.kykyemek;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * String encoding shared by {@link WidgetSnapshotFile} and {@link MealScheduleFile}.
+ * A string is stored as a ushort byte length followed by its UTF-8 bytes, and is
+ * referenced from an int table entry holding its offset, or -1 for null.
+ */
+final class BinaryStrings {
+    static final int NO_STRING = -1;
+    private static final int MAX_BYTES = 0xFFFF;
+
+    private BinaryStrings() {
+    }
+
+    /**
+     * Encode a string for {@link #put}
+     * @return UTF-8 bytes, or null for a null string
+     * @throws IOException If the string is too long to store
+     */
+    static byte[] toBytes(String value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_BYTES) {
+            throw new IOException("String too long: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    /**
+     * Space a string from {@link #toBytes} takes in the string data
+     */
+    static int sizeOf(byte[] bytes) {
+        return bytes != null ? 2 + bytes.length : 0;
+    }
+
+    /**
+     * Write a string at the end of the data and point the table entry at it
+     * @param out Buffer backed by an array
+     * @param entry Position of the table entry
+     * @param bytes String from {@link #toBytes}
+     * @param offset Where the string data ends so far
+     * @return Where the string data ends now
+     */
+    static int put(ByteBuffer out, int entry, byte[] bytes, int offset) {
+        out.putInt(entry, bytes != null ? offset : NO_STRING);
+        if (bytes == null) {
+            return offset;
+        }
+        out.putShort(offset, (short) bytes.length);
+        System.arraycopy(bytes, 0, out.array(), offset + 2, bytes.length);
+        return offset + 2 + bytes.length;
+    }
+
+    /**
+     * Check that a table entry points at a string inside the buffer
+     * @param entry Position of the table entry
+     * @param nullable Whether the entry may hold null
+     * @param dataStart Where the string data starts
+     * @throws IOException If the offset or length is out of bounds
+     */
+    static void check(ByteBuffer buffer, int entry, boolean nullable, int dataStart) throws IOException {
+        int offset = buffer.getInt(entry);
+        if (offset == NO_STRING && nullable) {
+            return;
+        }
+        int size = buffer.limit();
+        if (offset < dataStart || offset > size - 2
+                || offset + 2 + (buffer.getShort(offset) & 0xFFFF) > size) {
+            throw new IOException("Bad string offset " + offset);
+        }
+    }
+
+    /**
+     * Decode the string at an offset checked by {@link #check}
+     * @return The string, or null for {@link #NO_STRING}
+     */
+    static String read(ByteBuffer buffer, int offset) {
+        if (offset == NO_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + 2);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compare the string at an offset without decoding it, so scanning a table allocates nothing
+     */
+    static boolean equals(ByteBuffer buffer, int offset, byte[] bytes) {
+        if ((buffer.getShort(offset) & 0xFFFF) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(offset + 2 + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,8 +1,6 @@
 package com.kykyemek;
 
-import android.appwidget.AppWidgetManager;
 import android.content.BroadcastReceiver;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.util.Log;
@@ -10,31 +8,42 @@ import android.util.Log;
 /**
  * BroadcastReceiver that gets triggered when the device boots,
  * used to refresh/update widgets after device restart.
+ * Widgets are drawn from device-protected storage at LOCKED_BOOT_COMPLETED, before
+ * the first unlock; BOOT_COMPLETED, which arrives after the unlock, only schedules
+ * one deferred menu refresh.
  */
 public class BootCompletedReceiver extends BroadcastReceiver {
     private static final String TAG = "BootCompletedReceiver";
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        if (intent.getAction() != null && intent.getAction().equals(Intent.ACTION_BOOT_COMPLETED)) {
-            Log.d(TAG, "Boot completed, updating widgets");
-            
-            // Get all active widget ids
-            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-            ComponentName thisWidget = new ComponentName(context, MealWidgetProvider.class);
-            int[] appWidgetIds = appWidgetManager.getAppWidgetIds(thisWidget);
-            
-            if (appWidgetIds != null && appWidgetIds.length > 0) {
-                // Request widget updates
-                Intent updateIntent = new Intent(context, MealWidgetProvider.class);
-                updateIntent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-                updateIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, appWidgetIds);
-                context.sendBroadcast(updateIntent);
-                
-                // Also trigger a data refresh request to the React Native app
-                Intent rnIntent = new Intent("com.kykyemek.WIDGET_DATA_REQUEST");
-                context.sendBroadcast(rnIntent);
-            }
+        String action = intent.getAction();
+        if (!Intent.ACTION_LOCKED_BOOT_COMPLETED.equals(action) && !Intent.ACTION_BOOT_COMPLETED.equals(action)) {
+            return;
+        }
+
+        // Get all active widget ids
+        int[] appWidgetIds = WidgetUpdateScheduler.getAllWidgetIds(context);
+        if (appWidgetIds == null || appWidgetIds.length == 0) {
+            return;
+        }
+
+        if (Intent.ACTION_LOCKED_BOOT_COMPLETED.equals(action)) {
+            Log.d(TAG, "Locked boot completed, rendering widgets from device-protected storage");
+            WidgetUpdateScheduler.request(context, WidgetUpdateScheduler.REASON_BOOT, appWidgetIds, goAsync());
+            return;
+        }
+
+        Log.d(TAG, "Boot completed and unlocked, scheduling menu refresh");
+        // One deferred refresh once there is network; it renders the widgets whose menus changed.
+        // The periodic job is persisted, so it survived the reboot without being scheduled again.
+        MealFetchJobService.requestRefresh(context);
+
+        // Only widgets drawn empty at locked boot need a repaint: their data may have
+        // been in credential storage, which WidgetStorage moves over after the unlock
+        int[] withoutData = MealWidgetProvider.getWidgetsWithoutData(appWidgetIds);
+        if (withoutData.length > 0) {
+            WidgetUpdateScheduler.request(context, WidgetUpdateScheduler.REASON_UNLOCK, withoutData, goAsync());
         }
     }
-} 
\ No newline at end of file
+}
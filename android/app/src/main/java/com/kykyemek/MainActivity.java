@@ -1,5 +1,6 @@
 package com.kykyemek;
 
+import android.content.Intent;
 import android.os.Bundle;
 import com.facebook.react.ReactActivity;
 import com.facebook.react.ReactActivityDelegate;
@@ -22,9 +23,30 @@ public class MainActivity extends ReactActivity {
    */
   @Override
   protected void onCreate(Bundle savedInstanceState) {
+    StartupTimings.markActivityCreated();
+    // React Native is no longer initialized in MainApplication.onCreate
+    MainApplication application = (MainApplication) getApplication();
+    application.ensureReactInitialized();
+    if (WidgetLaunchOptions.isWidgetLaunch(getIntent())) {
+      // Opened from a widget: start loading JS before the window is set up
+      application.prewarmReact();
+    }
     super.onCreate(savedInstanceState);
   }
 
+  /**
+   * Keep the latest widget tap as the activity intent, so a recreated activity launches with it.
+   * The root view already exists, so the tap reaches JS as an event instead of initial props.
+   */
+  @Override
+  public void onNewIntent(Intent intent) {
+    super.onNewIntent(intent);
+    setIntent(intent);
+    if (WidgetLaunchOptions.isWidgetLaunch(intent)) {
+      MealWidgetModule.deliverWidgetLaunch(WidgetLaunchOptions.buildLaunch(this, intent));
+    }
+  }
+
   /**
    * Returns the instance of the {@link ReactActivityDelegate}. Here we use a util class {@link
    * DefaultReactActivityDelegate} which allows you to easily enable Fabric and Concurrent React
@@ -36,6 +58,12 @@ public class MainActivity extends ReactActivity {
         this,
         getMainComponentName(),
         // If you opted-in for the New Architecture, we enable the Fabric Renderer.
-        DefaultNewArchitectureEntryPoint.getFabricEnabled());
+        DefaultNewArchitectureEntryPoint.getFabricEnabled()) {
+      @Override
+      protected Bundle getLaunchOptions() {
+        // When opened from a widget, hand the widget's meal to JS as initial props
+        return WidgetLaunchOptions.build(MainActivity.this, getIntent());
+      }
+    };
   }
 } 
\ No newline at end of file
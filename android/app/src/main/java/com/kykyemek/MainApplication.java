@@ -1,8 +1,10 @@
 package com.kykyemek;
 
 import android.app.Application;
+import android.util.Log;
 import com.facebook.react.PackageList;
 import com.facebook.react.ReactApplication;
+import com.facebook.react.ReactInstanceManager;
 import com.facebook.react.ReactNativeHost;
 import com.facebook.react.ReactPackage;
 import com.facebook.react.defaults.DefaultNewArchitectureEntryPoint;
@@ -11,7 +13,16 @@ import com.facebook.soloader.SoLoader;
 
 import java.util.List;
 
+/**
+ * Application entry point. React Native and its native libraries are initialized
+ * on first use rather than in onCreate: when the process is started for the widget
+ * provider, list service, boot receiver or fetch job, nothing asks for the
+ * ReactNativeHost and the widget path skips SoLoader entirely.
+ */
 public class MainApplication extends Application implements ReactApplication {
+  private static final String TAG = "MainApplication";
+
+  private boolean mReactInitialized;
 
   private final ReactNativeHost mReactNativeHost =
       new DefaultReactNativeHost(this) {
@@ -47,16 +58,51 @@ public class MainApplication extends Application implements ReactApplication {
 
   @Override
   public ReactNativeHost getReactNativeHost() {
+    // ReactActivity and the bridge both reach React Native through the host
+    ensureReactInitialized();
     return mReactNativeHost;
   }
 
   @Override
   public void onCreate() {
     super.onCreate();
+    // Debug builds can restore the old eager init to measure what deferring it saves
+    boolean eager = BuildConfig.DEBUG && StartupTimings.isEagerInitForced(this);
+    if (eager) {
+      ensureReactInitialized();
+    }
+    StartupTimings.markApplicationCreated(eager);
+  }
+
+  /**
+   * Load the React Native native libraries and entry points if not done yet.
+   * Safe to call repeatedly and from any thread.
+   */
+  public synchronized void ensureReactInitialized() {
+    if (mReactInitialized) {
+      return;
+    }
+    long start = System.nanoTime();
     SoLoader.init(this, /* native exopackage */ false);
     if (BuildConfig.IS_NEW_ARCHITECTURE_ENABLED) {
       // If you opted-in for the New Architecture, we enable the TurboModule system
       DefaultNewArchitectureEntryPoint.getFabricEnabled();
     }
+    mReactInitialized = true;
+    StartupTimings.markReactInitialized(this, System.nanoTime() - start);
+    Log.d(TAG, "React Native initialized on first use");
+  }
+
+  /**
+   * Start creating the React context in the background so the JS bundle loads
+   * while the activity window is still being set up. Does nothing if creation
+   * already started.
+   */
+  public void prewarmReact() {
+    ReactInstanceManager instanceManager = getReactNativeHost().getReactInstanceManager();
+    if (!instanceManager.hasStartedCreatingInitialContext()) {
+      Log.d(TAG, "Prewarming React Native");
+      instanceManager.createReactContextInBackground();
+    }
   }
 } 
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.kykyemek;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * Schedules a single alarm at the next meal boundary (11:00 or midnight, or the
+ * start or end of a meal service) so widgets switch meals and countdowns without
+ * the React Native app running. Between boundaries the countdown ticks on its own.
+ * The alarm is non-waking: if the device is asleep it fires on the next wake,
+ * which is the first moment anyone can look at the widget anyway.
+ */
+public final class MealBoundaryAlarm {
+    private static final String TAG = "MealBoundaryAlarm";
+    public static final String ACTION_MEAL_BOUNDARY = "com.kykyemek.MEAL_BOUNDARY";
+
+    private MealBoundaryAlarm() {
+    }
+
+    /**
+     * Schedule (or replace) the alarm for the next meal boundary
+     * @param context Context used to access the AlarmManager
+     */
+    public static void scheduleNext(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            return;
+        }
+
+        long triggerAt = MealClock.nextBoundaryAt(System.currentTimeMillis());
+        PendingIntent pendingIntent = getPendingIntent(context);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            // Without the exact alarm permission the system may deliver a few minutes late
+            alarmManager.set(AlarmManager.RTC, triggerAt, pendingIntent);
+            Log.d(TAG, "Inexact meal boundary alarm scheduled for " + triggerAt);
+        } else {
+            alarmManager.setExact(AlarmManager.RTC, triggerAt, pendingIntent);
+            Log.d(TAG, "Meal boundary alarm scheduled for " + triggerAt);
+        }
+    }
+
+    /**
+     * Cancel the pending meal boundary alarm
+     * @param context Context used to access the AlarmManager
+     */
+    public static void cancel(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) {
+            alarmManager.cancel(getPendingIntent(context));
+        }
+    }
+
+    private static PendingIntent getPendingIntent(Context context) {
+        Intent intent = new Intent(context, MealWidgetProvider.class);
+        intent.setAction(ACTION_MEAL_BOUNDARY);
+        return PendingIntent.getBroadcast(
+            context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+}
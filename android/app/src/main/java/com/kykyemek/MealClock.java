@@ -0,0 +1,142 @@
+package com.kykyemek;
+
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Clock helpers that decide which meal the widget shows.
+ * Breakfast is shown from 00:00 to 11:00 and dinner from 11:00 until midnight,
+ * matching the rule used by the React Native widget service. Breakfast is served
+ * from 05:00 to 10:00 and dinner from 16:00 to 23:00, as in MEAL_TIME_RANGES.
+ */
+public final class MealClock {
+    public static final String BREAKFAST = "BREAKFAST";
+    public static final String DINNER = "DINNER";
+
+    // Hour at which the widget switches from breakfast to dinner
+    private static final int DINNER_SWITCH_HOUR = 11;
+
+    // Meal service hours, matching MEAL_TIME_RANGES in widgetConstants.ts
+    private static final int BREAKFAST_SERVICE_START_HOUR = 5;
+    private static final int BREAKFAST_SERVICE_END_HOUR = 10;
+    private static final int DINNER_SERVICE_START_HOUR = 16;
+    private static final int DINNER_SERVICE_END_HOUR = 23;
+
+    // Hours at which the widget's meal or countdown changes, in order
+    private static final int[] BOUNDARY_HOURS = {
+        0, BREAKFAST_SERVICE_START_HOUR, BREAKFAST_SERVICE_END_HOUR, DINNER_SWITCH_HOUR,
+        DINNER_SERVICE_START_HOUR, DINNER_SERVICE_END_HOUR
+    };
+
+    private MealClock() {
+    }
+
+    /**
+     * Get the meal type that should be shown at the given time
+     * @param nowMillis Wall clock time in milliseconds
+     * @return BREAKFAST or DINNER
+     */
+    public static String mealTypeAt(long nowMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(nowMillis);
+        return calendar.get(Calendar.HOUR_OF_DAY) < DINNER_SWITCH_HOUR ? BREAKFAST : DINNER;
+    }
+
+    /**
+     * Get the local date at the given time in yyyy-MM-dd format
+     * @param nowMillis Wall clock time in milliseconds
+     * @return ISO formatted local date
+     */
+    public static String dateAt(long nowMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(nowMillis);
+        return String.format(Locale.US, "%04d-%02d-%02d",
+                calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Get the local date a number of days after the given time in yyyy-MM-dd format
+     * @param nowMillis Wall clock time in milliseconds
+     * @param days Number of days to add
+     * @return ISO formatted local date
+     */
+    public static String dateAfterDays(long nowMillis, int days) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(nowMillis);
+        calendar.add(Calendar.DAY_OF_MONTH, days);
+        return dateAt(calendar.getTimeInMillis());
+    }
+
+    /**
+     * Get the start of the Monday of the week containing the given time
+     * @param nowMillis Wall clock time in milliseconds
+     * @return Wall clock time of that Monday's midnight in milliseconds
+     */
+    public static long weekStartAt(long nowMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(hourOfDay(nowMillis, 0));
+        // DAY_OF_WEEK runs from SUNDAY (1) to SATURDAY (7)
+        int daysSinceMonday = (calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+        calendar.add(Calendar.DAY_OF_MONTH, -daysSinceMonday);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Get the time the meal's service starts on the day of the given time
+     * @param nowMillis Wall clock time in milliseconds
+     * @param mealType BREAKFAST or DINNER
+     * @return Wall clock time of the service start in milliseconds
+     */
+    public static long serviceStartAt(long nowMillis, String mealType) {
+        return hourOfDay(nowMillis,
+                BREAKFAST.equals(mealType) ? BREAKFAST_SERVICE_START_HOUR : DINNER_SERVICE_START_HOUR);
+    }
+
+    /**
+     * Get the time the meal's service ends on the day of the given time
+     * @param nowMillis Wall clock time in milliseconds
+     * @param mealType BREAKFAST or DINNER
+     * @return Wall clock time of the service end in milliseconds
+     */
+    public static long serviceEndAt(long nowMillis, String mealType) {
+        return hourOfDay(nowMillis,
+                BREAKFAST.equals(mealType) ? BREAKFAST_SERVICE_END_HOUR : DINNER_SERVICE_END_HOUR);
+    }
+
+    /**
+     * Get the time of the next boundary: a meal switch (11:00 or midnight)
+     * or the start or end of a meal service
+     * @param nowMillis Wall clock time in milliseconds
+     * @return Wall clock time of the next boundary in milliseconds
+     */
+    public static long nextBoundaryAt(long nowMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(nowMillis);
+        int hour = calendar.get(Calendar.HOUR_OF_DAY);
+
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        for (int boundaryHour : BOUNDARY_HOURS) {
+            if (boundaryHour > hour) {
+                calendar.set(Calendar.HOUR_OF_DAY, boundaryHour);
+                return calendar.getTimeInMillis();
+            }
+        }
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    private static long hourOfDay(long nowMillis, int hour) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(nowMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, hour);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,48 @@
+package com.kykyemek;
+
+/**
+ * Countdown shown under the widget header: the time until the shown meal's
+ * service starts, or until it ends while it is being served. The provider binds
+ * it to a Chronometer in count-down mode, which the launcher ticks by itself, so
+ * the widget is only re-rendered when the countdown changes phase.
+ */
+public final class MealCountdown {
+    public enum Phase {
+        NONE,
+        UNTIL_START,
+        UNTIL_END
+    }
+
+    public static final MealCountdown NONE = new MealCountdown(Phase.NONE, 0);
+
+    public final Phase phase;
+    // Wall clock time the countdown reaches zero
+    public final long targetMillis;
+
+    private MealCountdown(Phase phase, long targetMillis) {
+        this.phase = phase;
+        this.targetMillis = targetMillis;
+    }
+
+    /**
+     * Get the countdown a widget showing the given snapshot should show
+     * @param nowMillis Wall clock time in milliseconds
+     * @param snapshot Snapshot being rendered, or null for the empty state
+     * @return Countdown to the service start or end, or {@link #NONE}
+     */
+    public static MealCountdown at(long nowMillis, WidgetSnapshot snapshot) {
+        // Only today's meal has a service to count down to
+        if (snapshot == null || !MealClock.dateAt(nowMillis).equals(snapshot.mealDate)) {
+            return NONE;
+        }
+        long start = MealClock.serviceStartAt(nowMillis, snapshot.mealType);
+        if (nowMillis < start) {
+            return new MealCountdown(Phase.UNTIL_START, start);
+        }
+        long end = MealClock.serviceEndAt(nowMillis, snapshot.mealType);
+        if (nowMillis < end) {
+            return new MealCountdown(Phase.UNTIL_END, end);
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,54 @@
+package com.kykyemek;
+
+/**
+ * Plain-Java formatting of meal dates for display, with no Android dependencies.
+ * Replaces per-call SimpleDateFormat instances: widget dates are always ISO
+ * yyyy-MM-dd, so they are split and formatted by hand with Turkish month names.
+ */
+public final class MealDateFormatter {
+    private static final String[] TURKISH_MONTHS = {
+        "Ocak", "Şubat", "Mart", "Nisan", "Mayıs", "Haziran",
+        "Temmuz", "Ağustos", "Eylül", "Ekim", "Kasım", "Aralık"
+    };
+
+    private MealDateFormatter() {
+    }
+
+    /**
+     * Format an ISO date the way the widget shows it, e.g. "2025-03-07" becomes "07 Mart 2025"
+     * @param isoDate Date in yyyy-MM-dd format
+     * @return Display date, or the input unchanged if it isn't an ISO date
+     */
+    public static String formatDisplayDate(String isoDate) {
+        if (isoDate == null || isoDate.length() != 10
+                || isoDate.charAt(4) != '-' || isoDate.charAt(7) != '-') {
+            return isoDate;
+        }
+        int month = parseDigits(isoDate, 5, 7);
+        int day = parseDigits(isoDate, 8, 10);
+        if (parseDigits(isoDate, 0, 4) < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return isoDate;
+        }
+
+        return new StringBuilder(20)
+            .append(isoDate, 8, 10)
+            .append(' ')
+            .append(TURKISH_MONTHS[month - 1])
+            .append(' ')
+            .append(isoDate, 0, 4)
+            .toString();
+    }
+
+    // Returns -1 if any character in the range is not a digit
+    private static int parseDigits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
@@ -0,0 +1,222 @@
+package com.kykyemek;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless menu refresh for the widgets. Fetches the two-week schedule for every
+ * city shown by a placed widget straight from the menu API and hands it to
+ * {@link MealScheduleStore}, so widgets stay current without starting React Native.
+ * Runs under JobScheduler with network and battery-not-low constraints.
+ */
+public class MealFetchJobService extends JobService {
+    private static final String TAG = "MealFetchJobService";
+
+    private static final int JOB_ID_REFRESH = 1001;
+    private static final int JOB_ID_PERIODIC = 1002;
+    private static final long PERIODIC_INTERVAL_MS = 12 * 60 * 60 * 1000L;
+    private static final long RETRY_BACKOFF_MS = 60 * 1000L;
+    // Two weeks from this week's Monday: always covers the 7 days the React Native app writes
+    // with prepareWidgetSchedule, and keeps the same cache key and validators all week
+    private static final int SCHEDULE_DAYS = 14;
+    private static final String CACHE_DIR_NAME = "menu_http_cache";
+    private static final long CACHE_MAX_BYTES = 512 * 1024L;
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "widget-fetch");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private volatile boolean mStopped;
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        mStopped = false;
+        final Context context = getApplicationContext();
+        sExecutor.execute(() -> {
+            boolean success = refreshAll(context);
+            if (!mStopped) {
+                jobFinished(params, !success);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        mStopped = true;
+        // Constraints were lost mid-fetch; let JobScheduler run it again later
+        return true;
+    }
+
+    /**
+     * Fetch the schedule for every city shown by a widget, then store it and
+     * queue a render for the widgets of each city whose menus changed.
+     * Stale cached menus are stored first, then replaced if their revalidation finds new ones.
+     * @param context Context used to access storage and the widget manager
+     * @return true if every city was fetched, false if any fetch should be retried
+     */
+    static boolean refreshAll(Context context) {
+        List<String> cityIds = WidgetConfigStore.getWidgetCityIds(context);
+        if (cityIds.isEmpty()) {
+            Log.d(TAG, "No widget cities to refresh");
+            return true;
+        }
+
+        MenuApiClient client = createClient(context);
+        if (client == null) {
+            // A build without the API settings won't get them by retrying
+            return true;
+        }
+        long weekStart = MealClock.weekStartAt(System.currentTimeMillis());
+        String startDate = MealClock.dateAt(weekStart);
+        String endDate = MealClock.dateAfterDays(weekStart, SCHEDULE_DAYS - 1);
+        boolean success = true;
+        Map<String, Future<MenuApiClient.ScheduleResult>> revalidations = new LinkedHashMap<>();
+
+        for (String cityId : cityIds) {
+            try {
+                MenuApiClient.ScheduleResult result = client.fetchSchedule(cityId, startDate, endDate);
+                store(context, cityId, result);
+                if (result.revalidation != null) {
+                    revalidations.put(cityId, result.revalidation);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Error fetching menus for city " + cityId + ": " + e.getMessage());
+                success = false;
+            } catch (JSONException e) {
+                // A malformed response won't get better on retry
+                Log.e(TAG, "Error parsing menus for city " + cityId + ": " + e.getMessage());
+            }
+        }
+
+        // Stale menus were stored and rendered above; the job ends once the server has answered for them
+        for (Map.Entry<String, Future<MenuApiClient.ScheduleResult>> entry : revalidations.entrySet()) {
+            String cityId = entry.getKey();
+            try {
+                store(context, cityId, entry.getValue().get());
+            } catch (JSONException e) {
+                Log.e(TAG, "Error parsing menus for city " + cityId + ": " + e.getMessage());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof JSONException) {
+                    Log.e(TAG, "Error parsing menus for city " + cityId + ": " + cause.getMessage());
+                } else {
+                    Log.e(TAG, "Error revalidating menus for city " + cityId + ": " + cause);
+                    success = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return success;
+    }
+
+    // Store a fetched schedule and queue a render for the city's widgets, unless nothing changed
+    private static void store(Context context, String cityId, MenuApiClient.ScheduleResult result)
+            throws JSONException {
+        if (result.scheduleData == null) {
+            Log.d(TAG, "No menus for city " + cityId);
+            return;
+        }
+        // Rewriting unchanged menus would bump the schedule version and re-render every widget
+        if (!result.changed && MealScheduleStore.hasSchedule(context, cityId)) {
+            Log.d(TAG, "Menus unchanged for city " + cityId);
+            return;
+        }
+        MealScheduleStore.write(context, result.scheduleData);
+        WidgetUpdateScheduler.request(context, WidgetUpdateScheduler.REASON_FETCH,
+                WidgetConfigStore.getWidgetIdsForCity(context, cityId));
+    }
+
+    /**
+     * Create a menu API client backed by the on-disk response cache
+     * @param context Context used to read the API config and find the cache directory
+     * @return The client, or null if the app config has no menu API settings
+     */
+    static MenuApiClient createClient(Context context) {
+        MenuApiConfig config = MenuApiConfig.get(context);
+        if (config == null) {
+            return null;
+        }
+        return new MenuApiClient(config.url, config.anonKey,
+                new MenuResponseCache(new File(context.getCacheDir(), CACHE_DIR_NAME), CACHE_MAX_BYTES));
+    }
+
+    /**
+     * Request a one-off refresh as soon as the device has network and enough battery
+     * @param context Context used to access the JobScheduler
+     */
+    public static void requestRefresh(Context context) {
+        JobInfo job = new JobInfo.Builder(JOB_ID_REFRESH, getComponent(context))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setRequiresBatteryNotLow(true)
+                .setBackoffCriteria(RETRY_BACKOFF_MS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .build();
+        schedule(context, job);
+    }
+
+    /**
+     * Schedule the periodic refresh that keeps the week-ahead schedule current.
+     * Scheduling again replaces the existing job, so this is safe to call repeatedly.
+     * @param context Context used to access the JobScheduler
+     */
+    public static void schedulePeriodic(Context context) {
+        JobInfo job = new JobInfo.Builder(JOB_ID_PERIODIC, getComponent(context))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setRequiresBatteryNotLow(true)
+                .setPersisted(true)
+                .setPeriodic(PERIODIC_INTERVAL_MS)
+                .build();
+        schedule(context, job);
+    }
+
+    /**
+     * Cancel both the pending one-off and the periodic refresh
+     * @param context Context used to access the JobScheduler
+     */
+    public static void cancel(Context context) {
+        JobScheduler jobScheduler = getJobScheduler(context);
+        if (jobScheduler != null) {
+            jobScheduler.cancel(JOB_ID_REFRESH);
+            jobScheduler.cancel(JOB_ID_PERIODIC);
+        }
+    }
+
+    private static void schedule(Context context, JobInfo job) {
+        JobScheduler jobScheduler = getJobScheduler(context);
+        if (jobScheduler == null) {
+            return;
+        }
+        if (jobScheduler.schedule(job) != JobScheduler.RESULT_SUCCESS) {
+            Log.e(TAG, "Failed to schedule widget fetch job");
+        }
+    }
+
+    private static JobScheduler getJobScheduler(Context context) {
+        return (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    }
+
+    private static ComponentName getComponent(Context context) {
+        return new ComponentName(context, MealFetchJobService.class);
+    }
+}
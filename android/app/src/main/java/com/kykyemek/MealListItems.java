@@ -0,0 +1,115 @@
+package com.kykyemek;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The items a list factory shows and the views built for them. Reloading the
+ * snapshot that is already loaded changes nothing; a new one keeps the views of
+ * items that are still listed. Plain Java, so the JVM load harness loads and binds
+ * lists with the same code as MealRemoteViewsFactory.
+ * @param <V> Item views
+ */
+final class MealListItems<V> {
+    /**
+     * Builds what the list binds
+     */
+    interface Views<V> {
+        WidgetRenderModel modelOf(WidgetSnapshot snapshot);
+
+        V build(WidgetRenderModel model, int position, String item);
+    }
+
+    private final boolean medium;
+    private final Views<V> views;
+    // Shared with the snapshot, which is immutable, so it is never copied or modified
+    private List<String> items = Collections.emptyList();
+    private WidgetRenderModel model;
+    // Snapshot the items came from; an identical snapshot means nothing to reload
+    private WidgetSnapshot loadedSnapshot;
+    private boolean loaded;
+    // Item views by icon category and item text, kept across reloads for items that are still listed
+    private final Map<String, V> itemViews = new HashMap<>();
+
+    /**
+     * @param medium Whether the list fills the medium layout, which shows fewer items
+     */
+    MealListItems(boolean medium, Views<V> views) {
+        this.medium = medium;
+        this.views = views;
+    }
+
+    /**
+     * Show a snapshot's items
+     * @param snapshot Snapshot for the list's meal slot, or null if there is no data
+     * @return false if the snapshot is the one already loaded, so nothing changed
+     */
+    boolean load(WidgetSnapshot snapshot) {
+        // The stores hand out one instance per data version and meal slot
+        if (loaded && snapshot == loadedSnapshot) {
+            return false;
+        }
+        loadedSnapshot = snapshot;
+        loaded = true;
+
+        if (snapshot != null) {
+            model = views.modelOf(snapshot);
+            items = medium ? model.mediumItems : model.largeItems;
+        } else {
+            model = null;
+            items = Collections.emptyList();
+        }
+        // Drop views for items that are no longer listed
+        Set<String> listed = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            listed.add(itemViewKey(i));
+        }
+        itemViews.keySet().retainAll(listed);
+        return true;
+    }
+
+    void clear() {
+        items = Collections.emptyList();
+        model = null;
+        loadedSnapshot = null;
+        loaded = false;
+        itemViews.clear();
+    }
+
+    int getCount() {
+        return items.size();
+    }
+
+    /**
+     * @return The item's view, built on first use, or null if the position is out of range
+     */
+    V getViewAt(int position) {
+        if (position < 0 || position >= items.size()) {
+            return null;
+        }
+        WidgetMetrics.countGetViewAt();
+
+        String key = itemViewKey(position);
+        V view = itemViews.get(key);
+        if (view == null) {
+            view = views.build(model, position, items.get(position));
+            itemViews.put(key, view);
+            WidgetMetrics.countRemoteViews(1);
+        }
+        return view;
+    }
+
+    long getItemId(int position) {
+        // Derived from the item text, so items keep their views when the list shifts
+        return model != null && position < items.size() ? model.getItemId(position) : position;
+    }
+
+    // The icon depends on the position as well as the text, so it is part of the key
+    private String itemViewKey(int position) {
+        return model.getItemCategory(position) + "|" + items.get(position);
+    }
+}
@@ -0,0 +1,129 @@
+package com.kykyemek;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable week-ahead menu schedule for a single city.
+ * Holds breakfast and dinner items per day so the widget can switch meals
+ * from the clock alone, without the React Native app pushing new data.
+ */
+public final class MealSchedule {
+    private static final String CITY_ID_KEY = "cityId";
+    private static final String CITY_NAME_KEY = "cityName";
+    private static final String DAYS_KEY = "days";
+    private static final String DATE_KEY = "date";
+    private static final String BREAKFAST_KEY = "breakfast";
+    private static final String DINNER_KEY = "dinner";
+
+    public final long version;
+    public final String cityId;
+    public final String cityName;
+    // Items keyed by "yyyy-MM-dd|MEAL_TYPE"
+    private final Map<String, List<String>> slots;
+
+    private MealSchedule(long version, String cityId, String cityName, Map<String, List<String>> slots) {
+        this.version = version;
+        this.cityId = cityId;
+        this.cityName = cityName;
+        this.slots = slots;
+    }
+
+    /**
+     * Parse the schedule JSON written by the React Native app
+     * Expected shape: {cityId, cityName, days: [{date, breakfast: [..], dinner: [..]}]}
+     * @param version Version the schedule was written with
+     * @param json JSON string containing the schedule
+     * @return Parsed schedule
+     * @throws JSONException If a required field is missing or malformed
+     */
+    public static MealSchedule parse(long version, String json) throws JSONException {
+        return fromJson(version, new JSONObject(json));
+    }
+
+    /**
+     * Build a schedule from already parsed JSON
+     * @param version Version the schedule was written with
+     * @param data Schedule object in the same shape {@link #parse} expects
+     * @return Schedule
+     * @throws JSONException If a required field is missing or malformed
+     */
+    public static MealSchedule fromJson(long version, JSONObject data) throws JSONException {
+        String cityId = data.getString(CITY_ID_KEY);
+        String cityName = data.has(CITY_NAME_KEY) && !data.isNull(CITY_NAME_KEY)
+                           ? data.getString(CITY_NAME_KEY) : null;
+
+        JSONArray days = data.getJSONArray(DAYS_KEY);
+        Map<String, List<String>> slots = new HashMap<>();
+        for (int i = 0; i < days.length(); i++) {
+            JSONObject day = days.getJSONObject(i);
+            String date = day.getString(DATE_KEY);
+            putSlot(slots, date, MealClock.BREAKFAST, day.optJSONArray(BREAKFAST_KEY));
+            putSlot(slots, date, MealClock.DINNER, day.optJSONArray(DINNER_KEY));
+        }
+
+        return new MealSchedule(version, cityId, cityName, slots);
+    }
+
+    private static void putSlot(Map<String, List<String>> slots, String date, String mealType, JSONArray items)
+            throws JSONException {
+        if (items == null || items.length() == 0) {
+            return;
+        }
+        List<String> list = new ArrayList<>(items.length());
+        for (int i = 0; i < items.length(); i++) {
+            list.add(items.getString(i));
+        }
+        slots.put(slotKey(date, mealType), Collections.unmodifiableList(list));
+    }
+
+    /**
+     * Get a copy of this schedule stamped with another version
+     */
+    public MealSchedule withVersion(long newVersion) {
+        return new MealSchedule(newVersion, cityId, cityName, slots);
+    }
+
+    static String slotKey(String date, String mealType) {
+        return date + "|" + mealType;
+    }
+
+    /**
+     * Build the widget snapshot for a specific meal slot
+     * @param date Meal date in yyyy-MM-dd format
+     * @param mealType BREAKFAST or DINNER
+     * @return Snapshot for the slot, or null if the schedule doesn't cover it
+     */
+    public WidgetSnapshot snapshotFor(String date, String mealType) {
+        List<String> items = slots.get(slotKey(date, mealType));
+        if (items == null) {
+            return null;
+        }
+        return new WidgetSnapshot(version, cityId, mealType, date, cityName, items);
+    }
+
+    /**
+     * Build the widget snapshots for every meal slot in the schedule
+     */
+    public List<WidgetSnapshot> snapshots() {
+        List<WidgetSnapshot> snapshots = new ArrayList<>(slots.size());
+        for (Map.Entry<String, List<String>> slot : slots.entrySet()) {
+            String key = slot.getKey();
+            int separator = key.indexOf('|');
+            snapshots.add(new WidgetSnapshot(version, cityId, key.substring(separator + 1),
+                    key.substring(0, separator), cityName, slot.getValue()));
+        }
+        return snapshots;
+    }
+
+    public int getSlotCount() {
+        return slots.size();
+    }
+}
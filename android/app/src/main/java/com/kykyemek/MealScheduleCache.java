@@ -0,0 +1,241 @@
+package com.kykyemek;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The caching behind {@link MealScheduleStore}. The mapped file is kept open per
+ * city, so reading the version is a header read and a render decodes only the meal
+ * slot it shows. Slot snapshots are kept with their render model, so widgets
+ * showing the same slot share one instance per data version. Storage is reached
+ * through {@link Source}, so this is plain Java and the JVM load harness reads
+ * schedules with the same code as the device.
+ */
+final class MealScheduleCache {
+    private static final String TAG = "MealScheduleStore";
+
+    /**
+     * Where the schedules are kept
+     */
+    interface Source {
+        File scheduleFile(String cityId);
+
+        /**
+         * @return A city's schedule JSON written by older versions, or null if there is none
+         */
+        String readLegacy(String cityId);
+
+        long readLegacyVersion(String cityId);
+
+        void removeLegacy(String cityId);
+
+        WidgetSnapshot withRenderModel(WidgetSnapshot snapshot);
+    }
+
+    private final Source source;
+    // Mapped schedule files by city; a freshly written schedule is read from its encoded bytes
+    private final Map<String, MealScheduleFile> files = new HashMap<>();
+    // Snapshots keyed by "cityId|date|MEAL_TYPE"
+    private final Map<String, WidgetSnapshot> slotSnapshots = new HashMap<>();
+    // Modification time of files that failed to open, so a bad file isn't re-read on every render
+    private final Map<String, Long> failedFiles = new HashMap<>();
+    // Cities with neither a schedule file nor legacy data. Cleared for a city on write.
+    private final Set<String> missing = new HashSet<>();
+
+    private long filesOpened;
+    private long slotHits;
+    private long slotDecodes;
+
+    MealScheduleCache(Source source) {
+        this.source = source;
+    }
+
+    /**
+     * Persist a week-ahead schedule under the next version for its city
+     * @param data Schedule object
+     * @return The schedule
+     * @throws JSONException If the data is not a valid schedule
+     */
+    synchronized MealSchedule write(JSONObject data) throws JSONException {
+        long parseStart = System.nanoTime();
+        MealSchedule parsed = MealSchedule.fromJson(0, data);
+        WidgetMetrics.PARSE.record(System.nanoTime() - parseStart);
+        String cityId = parsed.cityId;
+        MealScheduleFile previous = open(cityId);
+        long version = (previous != null ? previous.getVersion() : 0) + 1;
+        MealSchedule schedule = parsed.withVersion(version);
+
+        MealScheduleFile stored;
+        try {
+            byte[] encoded = MealScheduleFile.encode(schedule);
+            stored = MealScheduleFile.wrap(encoded);
+            try {
+                MealScheduleFile.write(source.scheduleFile(cityId), encoded);
+            } catch (IOException e) {
+                // Widgets in this process still get the new schedule from memory
+                Log.e(TAG, "Error writing meal schedule: " + e.getMessage());
+            }
+        } catch (IOException e) {
+            throw new JSONException("Schedule can't be stored: " + e.getMessage());
+        }
+
+        files.put(cityId, stored);
+        failedFiles.remove(cityId);
+        missing.remove(cityId);
+        slotSnapshots.keySet().removeIf(key -> key.startsWith(cityId + "|"));
+        // Render models for the whole week are built now, off the render path
+        for (WidgetSnapshot slot : schedule.snapshots()) {
+            slotSnapshots.put(cityId + "|" + MealSchedule.slotKey(slot.mealDate, slot.mealType),
+                    source.withRenderModel(slot));
+        }
+        WidgetMetrics.markDataWritten(cityId);
+        Log.d(TAG, "Schedule written for city " + cityId + " with "
+                + schedule.getSlotCount() + " meal slots, version " + version);
+        return schedule;
+    }
+
+    /**
+     * @param cityId City key
+     * @return Schedule version, or 0 if no schedule is stored for the city
+     */
+    synchronized long getVersion(String cityId) {
+        MealScheduleFile file = open(cityId);
+        return file != null ? file.getVersion() : 0;
+    }
+
+    /**
+     * Get the snapshot for a city's meal slot
+     * @param cityId City key
+     * @param date Meal date in yyyy-MM-dd format
+     * @param mealType BREAKFAST or DINNER
+     * @return Snapshot for the slot, or null if no schedule covers it
+     */
+    synchronized WidgetSnapshot snapshotAt(String cityId, String date, String mealType) {
+        MealScheduleFile file = open(cityId);
+        if (file == null) {
+            return null;
+        }
+        String key = cityId + "|" + MealSchedule.slotKey(date, mealType);
+        WidgetSnapshot snapshot = slotSnapshots.get(key);
+        if (snapshot != null && snapshot.version == file.getVersion()) {
+            slotHits++;
+            return snapshot;
+        }
+
+        long parseStart = System.nanoTime();
+        snapshot = file.snapshotFor(date, mealType);
+        WidgetMetrics.PARSE.record(System.nanoTime() - parseStart);
+        slotDecodes++;
+        if (snapshot != null) {
+            snapshot = source.withRenderModel(snapshot);
+            slotSnapshots.put(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Number of schedule files opened from storage
+     */
+    synchronized long getFilesOpened() {
+        return filesOpened;
+    }
+
+    /**
+     * Number of slot reads served from a cached snapshot
+     */
+    synchronized long getSlotHits() {
+        return slotHits;
+    }
+
+    /**
+     * Number of slot reads that decoded the slot from its file
+     */
+    synchronized long getSlotDecodes() {
+        return slotDecodes;
+    }
+
+    /**
+     * Get the mapped schedule for a city, opening its file or migrating legacy
+     * data on first use
+     * @return The schedule, or null if none is stored
+     */
+    private MealScheduleFile open(String cityId) {
+        MealScheduleFile cached = files.get(cityId);
+        if (cached != null) {
+            return cached;
+        }
+        if (missing.contains(cityId)) {
+            return null;
+        }
+
+        File file = source.scheduleFile(cityId);
+        if (!file.exists()) {
+            return migrate(cityId, file);
+        }
+        Long failedAt = failedFiles.get(cityId);
+        if (failedAt != null && failedAt == file.lastModified()) {
+            return null;
+        }
+        try {
+            MealScheduleFile opened = MealScheduleFile.open(file);
+            if (!cityId.equals(opened.getCityId())) {
+                // Hashed file names can collide; never show another city's menu
+                throw new IOException("Schedule file belongs to city " + opened.getCityId());
+            }
+            files.put(cityId, opened);
+            filesOpened++;
+            return opened;
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading meal schedule: " + e.getMessage());
+            failedFiles.put(cityId, file.lastModified());
+            return null;
+        }
+    }
+
+    /**
+     * Move a city's schedule from the legacy storage into a schedule file
+     * @return The migrated schedule, or null if there was nothing to migrate
+     */
+    private MealScheduleFile migrate(String cityId, File file) {
+        String scheduleData = source.readLegacy(cityId);
+        if (scheduleData == null) {
+            missing.add(cityId);
+            return null;
+        }
+
+        try {
+            long version = source.readLegacyVersion(cityId);
+            long parseStart = System.nanoTime();
+            MealSchedule schedule = MealSchedule.parse(version, scheduleData);
+            WidgetMetrics.PARSE.record(System.nanoTime() - parseStart);
+            if (!cityId.equals(schedule.cityId)) {
+                throw new JSONException("Schedule belongs to city " + schedule.cityId);
+            }
+            byte[] encoded = MealScheduleFile.encode(schedule);
+            MealScheduleFile.write(file, encoded);
+            source.removeLegacy(cityId);
+            MealScheduleFile migrated = MealScheduleFile.wrap(encoded);
+            files.put(cityId, migrated);
+            Log.d(TAG, "Migrated meal schedule for city " + cityId + " to " + file.getName());
+            return migrated;
+        } catch (JSONException e) {
+            Log.e(TAG, "Dropping unreadable legacy meal schedule: " + e.getMessage());
+            source.removeLegacy(cityId);
+            missing.add(cityId);
+            return null;
+        } catch (IOException e) {
+            // Keep the legacy data and try again on the next read
+            Log.e(TAG, "Error migrating meal schedule: " + e.getMessage());
+            return null;
+        }
+    }
+}
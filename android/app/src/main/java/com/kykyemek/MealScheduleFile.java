@@ -0,0 +1,239 @@
+package com.kykyemek;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compact binary week-ahead schedule file, read through a memory-mapped buffer.
+ * A meal slot is found by scanning the fixed-size slot table, and only that
+ * slot's strings are decoded, so a render never parses the rest of the week.
+ *
+ * <pre>
+ *  0  int    magic "KYKS"
+ *  4  short  format version
+ *  6  ushort slot count
+ *  8  long   schedule version
+ * 16  int    offset of cityId
+ * 20  int    offset of cityName   (-1 for null)
+ * 24  int    item count, over all slots
+ * 28  slot table, 12 bytes per slot, ordered by date and meal type:
+ *       int    offset of date
+ *       byte   meal type: 0 breakfast, 1 dinner
+ *       byte   unused
+ *       ushort item count
+ *       int    index of the slot's first item
+ *     int[]  offset of each item, slot by slot
+ *     string data: ushort byte length, then UTF-8 bytes
+ * </pre>
+ * Files are replaced the same way as {@link WidgetSnapshotFile}, so readers see
+ * either the old or the new schedule, never a partial one.
+ */
+final class MealScheduleFile {
+    private static final int MAGIC = 0x4B594B53;
+    private static final short FORMAT_VERSION = 1;
+
+    private static final int SLOT_COUNT_OFFSET = 6;
+    private static final int VERSION_OFFSET = 8;
+    private static final int CITY_ID_OFFSET = 16;
+    private static final int CITY_NAME_OFFSET = 20;
+    private static final int ITEM_COUNT_OFFSET = 24;
+    private static final int HEADER_SIZE = 28;
+    private static final int SLOT_SIZE = 12;
+    private static final byte BREAKFAST = 0;
+    private static final byte DINNER = 1;
+
+    private final ByteBuffer buffer;
+
+    private MealScheduleFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        validate();
+    }
+
+    /**
+     * Map a schedule file
+     * @param file File written by {@link #write}
+     * @return Reader over the mapped file
+     * @throws IOException If the file can't be read or isn't a valid schedule file
+     */
+    static MealScheduleFile open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MealScheduleFile(buffer);
+        }
+    }
+
+    /**
+     * Read encoded schedule data that is already in memory
+     * @param data Bytes from {@link #encode}
+     * @return Reader over the data
+     * @throws IOException If the data isn't a valid schedule file
+     */
+    static MealScheduleFile wrap(byte[] data) throws IOException {
+        return new MealScheduleFile(ByteBuffer.wrap(data));
+    }
+
+    long getVersion() {
+        return buffer.getLong(VERSION_OFFSET);
+    }
+
+    String getCityId() {
+        return readString(buffer.getInt(CITY_ID_OFFSET));
+    }
+
+    int getSlotCount() {
+        return buffer.getShort(SLOT_COUNT_OFFSET) & 0xFFFF;
+    }
+
+    /**
+     * Build the widget snapshot for a meal slot, decoding only that slot
+     * @param date Meal date in yyyy-MM-dd format
+     * @param mealType BREAKFAST or DINNER
+     * @return Snapshot for the slot, or null if the schedule doesn't cover it
+     */
+    WidgetSnapshot snapshotFor(String date, String mealType) {
+        byte meal = MealClock.BREAKFAST.equals(mealType) ? BREAKFAST : DINNER;
+        byte[] dateBytes = date.getBytes(StandardCharsets.UTF_8);
+        int slotCount = getSlotCount();
+        for (int slot = 0; slot < slotCount; slot++) {
+            int entry = HEADER_SIZE + slot * SLOT_SIZE;
+            if (buffer.get(entry + 4) != meal || !BinaryStrings.equals(buffer, buffer.getInt(entry), dateBytes)) {
+                continue;
+            }
+            int itemCount = buffer.getShort(entry + 6) & 0xFFFF;
+            int itemTable = itemTableStart() + buffer.getInt(entry + 8) * 4;
+            List<String> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                items.add(readString(buffer.getInt(itemTable + i * 4)));
+            }
+            return new WidgetSnapshot(getVersion(), getCityId(), mealType, date,
+                    readString(buffer.getInt(CITY_NAME_OFFSET)), Collections.unmodifiableList(items));
+        }
+        return null;
+    }
+
+    /**
+     * Atomically replace a schedule file
+     * @param file Destination file
+     * @param data Bytes from {@link #encode}
+     * @throws IOException If the file could not be written or replaced
+     */
+    static void write(File file, byte[] data) throws IOException {
+        WidgetSnapshotFile.replace(file, data);
+    }
+
+    /**
+     * Encode a schedule, with the version it should be stored under
+     */
+    static byte[] encode(MealSchedule schedule) throws IOException {
+        List<WidgetSnapshot> slots = new ArrayList<>(schedule.snapshots());
+        if (slots.size() > 0xFFFF) {
+            throw new IOException("Too many meal slots: " + slots.size());
+        }
+        Collections.sort(slots, Comparator.<WidgetSnapshot, String>comparing(slot -> slot.mealDate)
+                .thenComparing(slot -> MealClock.BREAKFAST.equals(slot.mealType) ? BREAKFAST : DINNER));
+
+        int itemCount = 0;
+        for (WidgetSnapshot slot : slots) {
+            if (slot.items.size() > 0xFFFF) {
+                throw new IOException("Too many items: " + slot.items.size());
+            }
+            itemCount += slot.items.size();
+        }
+
+        // City strings first, then each slot's date and items, in table order
+        List<byte[]> strings = new ArrayList<>(2 + slots.size() + itemCount);
+        strings.add(BinaryStrings.toBytes(schedule.cityId));
+        strings.add(BinaryStrings.toBytes(schedule.cityName));
+        for (WidgetSnapshot slot : slots) {
+            strings.add(BinaryStrings.toBytes(slot.mealDate));
+            for (String item : slot.items) {
+                strings.add(BinaryStrings.toBytes(item));
+            }
+        }
+
+        int itemTableStart = HEADER_SIZE + slots.size() * SLOT_SIZE;
+        int size = itemTableStart + itemCount * 4;
+        for (byte[] bytes : strings) {
+            size += BinaryStrings.sizeOf(bytes);
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(0, MAGIC);
+        out.putShort(4, FORMAT_VERSION);
+        out.putShort(SLOT_COUNT_OFFSET, (short) slots.size());
+        out.putLong(VERSION_OFFSET, schedule.version);
+        out.putInt(ITEM_COUNT_OFFSET, itemCount);
+
+        int stringIndex = 0;
+        int offset = itemTableStart + itemCount * 4;
+        offset = BinaryStrings.put(out, CITY_ID_OFFSET, strings.get(stringIndex++), offset);
+        offset = BinaryStrings.put(out, CITY_NAME_OFFSET, strings.get(stringIndex++), offset);
+        int firstItem = 0;
+        for (int slot = 0; slot < slots.size(); slot++) {
+            WidgetSnapshot snapshot = slots.get(slot);
+            int entry = HEADER_SIZE + slot * SLOT_SIZE;
+            offset = BinaryStrings.put(out, entry, strings.get(stringIndex++), offset);
+            out.put(entry + 4, MealClock.BREAKFAST.equals(snapshot.mealType) ? BREAKFAST : DINNER);
+            out.putShort(entry + 6, (short) snapshot.items.size());
+            out.putInt(entry + 8, firstItem);
+            for (int i = 0; i < snapshot.items.size(); i++) {
+                offset = BinaryStrings.put(out, itemTableStart + (firstItem + i) * 4,
+                        strings.get(stringIndex++), offset);
+            }
+            firstItem += snapshot.items.size();
+        }
+        return out.array();
+    }
+
+    private int itemTableStart() {
+        return HEADER_SIZE + getSlotCount() * SLOT_SIZE;
+    }
+
+    // Check the header, the slot table and every offset once, so the accessors can trust them
+    private void validate() throws IOException {
+        int size = buffer.limit();
+        if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a meal schedule file");
+        }
+        if (buffer.getShort(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported schedule format " + buffer.getShort(4));
+        }
+        int itemCount = buffer.getInt(ITEM_COUNT_OFFSET);
+        long tableEnd = itemTableStart() + (long) itemCount * 4;
+        if (itemCount < 0 || tableEnd > size) {
+            throw new IOException("Truncated schedule tables");
+        }
+
+        BinaryStrings.check(buffer, CITY_ID_OFFSET, false, (int) tableEnd);
+        BinaryStrings.check(buffer, CITY_NAME_OFFSET, true, (int) tableEnd);
+        int slotCount = getSlotCount();
+        for (int slot = 0; slot < slotCount; slot++) {
+            int entry = HEADER_SIZE + slot * SLOT_SIZE;
+            BinaryStrings.check(buffer, entry, false, (int) tableEnd);
+            byte meal = buffer.get(entry + 4);
+            int firstItem = buffer.getInt(entry + 8);
+            int slotItems = buffer.getShort(entry + 6) & 0xFFFF;
+            if ((meal != BREAKFAST && meal != DINNER) || firstItem < 0 || (long) firstItem + slotItems > itemCount) {
+                throw new IOException("Bad meal slot " + slot);
+            }
+        }
+        for (int entry = itemTableStart(); entry < tableEnd; entry += 4) {
+            BinaryStrings.check(buffer, entry, false, (int) tableEnd);
+        }
+    }
+
+    private String readString(int offset) {
+        return BinaryStrings.read(buffer, offset);
+    }
+}
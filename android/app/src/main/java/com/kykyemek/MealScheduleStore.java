@@ -0,0 +1,164 @@
+package com.kykyemek;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+
+/**
+ * Native storage for week-ahead meal schedules, one per city.
+ * Each city's schedule is a binary {@link MealScheduleFile} in device-protected
+ * storage. The mapped file is kept open per city, so reading the version is a
+ * header read and a render decodes only the meal slot it shows. Slot snapshots
+ * are cached process-wide by {@link MealScheduleCache}, so widgets showing the
+ * same city share them.
+ * Schedules written to SharedPreferences by older versions are moved into a
+ * schedule file the first time they are read.
+ */
+public final class MealScheduleStore {
+    private static final String SCHEDULE_DIR = "widget_schedules";
+    private static final String SCHEDULE_SUFFIX = ".bin";
+    // Legacy storage, only read to migrate
+    private static final String PREFS_NAME = "com.kykyemek.MealWidget";
+    private static final String SCHEDULE_KEY_PREFIX = "kyk_yemek_widget_schedule_";
+    private static final String SCHEDULE_VERSION_KEY_PREFIX = "kyk_yemek_widget_schedule_version_";
+
+    private static final Object sLock = new Object();
+    private static MealScheduleCache sCache;
+
+    private MealScheduleStore() {
+    }
+
+    /**
+     * Parse and persist a week-ahead schedule for its city
+     * @param context Context used to access storage
+     * @param scheduleData JSON string containing the schedule
+     * @return The parsed schedule
+     * @throws JSONException If the data is not a valid schedule
+     */
+    public static MealSchedule write(Context context, String scheduleData) throws JSONException {
+        return write(context, new JSONObject(scheduleData));
+    }
+
+    /**
+     * Persist a week-ahead schedule that is already in JSON form
+     * @param context Context used to access storage
+     * @param data Schedule object
+     * @return The schedule
+     * @throws JSONException If the data is not a valid schedule
+     */
+    public static MealSchedule write(Context context, JSONObject data) throws JSONException {
+        return cache(context).write(data);
+    }
+
+    /**
+     * Check whether a schedule is stored for a city
+     * @param context Context used to access storage
+     * @param cityId City key
+     */
+    public static boolean hasSchedule(Context context, String cityId) {
+        return getVersion(context, cityId) != 0;
+    }
+
+    /**
+     * Get the version of a city's stored schedule, the same version
+     * {@link #write} returned when the schedule was stored
+     * @param context Context used to access storage
+     * @param cityId City key, or null if the widget has no city yet
+     * @return Schedule version, or 0 if no schedule is stored for the city
+     */
+    public static long getVersion(Context context, String cityId) {
+        if (cityId == null) {
+            return 0;
+        }
+        return cache(context).getVersion(cityId);
+    }
+
+    /**
+     * Get the size of a city's stored schedule file
+     * @param context Context used to access storage
+     * @param cityId City key
+     * @return Encoded size in bytes, or 0 if no file is stored
+     */
+    public static long getStoredSize(Context context, String cityId) {
+        return scheduleFile(context, cityId).length();
+    }
+
+    /**
+     * Get the snapshot for a city's meal slot
+     * @param context Context used to access storage
+     * @param cityId City key, or null if the widget has no city yet
+     * @param date Meal date in yyyy-MM-dd format
+     * @param mealType BREAKFAST or DINNER
+     * @return Snapshot for the slot, or null if no schedule covers it
+     */
+    public static WidgetSnapshot snapshotAt(Context context, String cityId, String date, String mealType) {
+        if (cityId == null) {
+            return null;
+        }
+        return cache(context).snapshotAt(cityId, date, mealType);
+    }
+
+    /**
+     * Get the cache the store reads through, created on first use
+     */
+    static MealScheduleCache cache(Context context) {
+        synchronized (sLock) {
+            if (sCache == null) {
+                sCache = new MealScheduleCache(new PrefsSource(context.getApplicationContext()));
+            }
+            return sCache;
+        }
+    }
+
+    /**
+     * Schedule files in device-protected storage, with legacy data in SharedPreferences
+     */
+    private static final class PrefsSource implements MealScheduleCache.Source {
+        private final Context context;
+
+        PrefsSource(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public File scheduleFile(String cityId) {
+            return MealScheduleStore.scheduleFile(context, cityId);
+        }
+
+        @Override
+        public String readLegacy(String cityId) {
+            return getPrefs(context).getString(SCHEDULE_KEY_PREFIX + cityId, null);
+        }
+
+        @Override
+        public long readLegacyVersion(String cityId) {
+            return getPrefs(context).getLong(SCHEDULE_VERSION_KEY_PREFIX + cityId, 0);
+        }
+
+        @Override
+        public void removeLegacy(String cityId) {
+            getPrefs(context).edit()
+                .remove(SCHEDULE_KEY_PREFIX + cityId)
+                .remove(SCHEDULE_VERSION_KEY_PREFIX + cityId)
+                .apply();
+        }
+
+        @Override
+        public WidgetSnapshot withRenderModel(WidgetSnapshot snapshot) {
+            return WidgetSnapshotStore.withRenderModel(context, snapshot);
+        }
+    }
+
+    private static File scheduleFile(Context context, String cityId) {
+        return new File(WidgetStorage.getDir(context, SCHEDULE_DIR),
+                WidgetSnapshotStore.cityFileName(cityId) + SCHEDULE_SUFFIX);
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return WidgetStorage.getPrefs(context, PREFS_NAME);
+    }
+}
@@ -4,22 +4,34 @@ import android.app.Activity;
 import android.appwidget.AppWidgetManager;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.view.View;
+import android.util.Log;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
-import android.widget.RadioButton;
 import android.widget.RadioGroup;
-import android.widget.TextView;
+import android.widget.Spinner;
 import android.widget.Toast;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * The configuration screen for the MealWidget AppWidget.
+ * Cities are loaded from the menu API; offline, the widget can still be placed
+ * and follows the city selected in the app. Menus are per city, and the launcher
+ * picks the layout from the widget's size, so there is nothing else to choose.
  */
 public class MealWidgetConfigureActivity extends Activity {
+    private static final String TAG = "MealWidgetConfigure";
 
-    private static final String PREFS_NAME = "com.kykyemek.MealWidget";
     private int mAppWidgetId = AppWidgetManager.INVALID_APPWIDGET_ID;
+    private WidgetConfig mCurrentConfig;
+    private ArrayAdapter<MenuApiClient.Location> mCityAdapter;
+    private boolean mCitiesLoaded;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
     
     public MealWidgetConfigureActivity() {
         super();
@@ -49,6 +61,10 @@ public class MealWidgetConfigureActivity extends Activity {
             return;
         }
         
+        mCurrentConfig = WidgetConfigStore.get(this, mAppWidgetId);
+        setUpCityPicker();
+        setUpMealModePicker();
+
         // Set up the configuration view
         Button confirmButton = findViewById(R.id.confirm_button);
         confirmButton.setOnClickListener(v -> {
@@ -63,26 +79,107 @@ public class MealWidgetConfigureActivity extends Activity {
             setResult(RESULT_OK, resultValue);
             
             // It is the responsibility of the configuration activity to update the app widget
-            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-            MealWidgetProvider.updateAppWidget(context, appWidgetManager, mAppWidgetId);
+            WidgetUpdateScheduler.request(context, WidgetUpdateScheduler.REASON_CONFIGURE, new int[] { mAppWidgetId });
             
             finish();
         });
     }
     
+    @Override
+    protected void onDestroy() {
+        mExecutor.shutdownNow();
+        super.onDestroy();
+    }
+
+    private void setUpCityPicker() {
+        List<MenuApiClient.Location> cities = new ArrayList<>();
+        cities.add(new MenuApiClient.Location(null, getString(R.string.widget_city_follow_app)));
+        mCityAdapter = createAdapter(cities);
+
+        Spinner citySpinner = findViewById(R.id.city_spinner);
+        citySpinner.setAdapter(mCityAdapter);
+
+        MenuApiClient client = MealFetchJobService.createClient(this);
+        if (client == null) {
+            Toast.makeText(this, R.string.widget_locations_unavailable, Toast.LENGTH_LONG).show();
+            return;
+        }
+        mExecutor.execute(() -> {
+            List<MenuApiClient.Location> loaded;
+            try {
+                loaded = client.fetchCities();
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading cities: " + e.getMessage());
+                runOnUiThread(() -> Toast.makeText(
+                    this, R.string.widget_locations_unavailable, Toast.LENGTH_LONG).show());
+                return;
+            }
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                mCityAdapter.addAll(loaded);
+                mCitiesLoaded = true;
+                citySpinner.setSelection(indexOf(mCityAdapter, mCurrentConfig.cityId));
+            });
+        });
+    }
+
+    private void setUpMealModePicker() {
+        // Show the saved mode, so saving a reconfigured widget keeps its pinned meal
+        RadioGroup mealModeGroup = findViewById(R.id.meal_mode_group);
+        if (MealClock.BREAKFAST.equals(mCurrentConfig.mealMode)) {
+            mealModeGroup.check(R.id.meal_mode_breakfast);
+        } else if (MealClock.DINNER.equals(mCurrentConfig.mealMode)) {
+            mealModeGroup.check(R.id.meal_mode_dinner);
+        } else {
+            mealModeGroup.check(R.id.meal_mode_auto);
+        }
+    }
+
+    private ArrayAdapter<MenuApiClient.Location> createAdapter(List<MenuApiClient.Location> items) {
+        ArrayAdapter<MenuApiClient.Location> adapter =
+            new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, items);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        return adapter;
+    }
+
+    private static int indexOf(ArrayAdapter<MenuApiClient.Location> adapter, String id) {
+        for (int i = 0; i < adapter.getCount(); i++) {
+            if (Objects.equals(id, adapter.getItem(i).id)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private String getSelectedId(int spinnerId) {
+        Spinner spinner = findViewById(spinnerId);
+        MenuApiClient.Location selected = (MenuApiClient.Location) spinner.getSelectedItem();
+        return selected != null ? selected.id : null;
+    }
+
     private void savePrefs() {
-        // Get the preferences
-        SharedPreferences.Editor prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit();
-        
-        // Store widget-specific preferences (e.g., refresh interval, display options)
-        // For now, we're just using default settings
-        
-        prefs.apply();
+        // Store widget-specific preferences; a null city follows the app.
+        // Without the city list, keep whatever city was configured before.
+        String cityId = mCitiesLoaded ? getSelectedId(R.id.city_spinner) : mCurrentConfig.cityId;
+        WidgetConfigStore.save(this, new WidgetConfig(mAppWidgetId, cityId, getSelectedMealMode()));
         
-        // Also trigger a data load from the React Native side
-        // This would be done via a broadcast intent that the React Native app would listen for
-        Intent updateIntent = new Intent("com.kykyemek.WIDGET_DATA_REQUEST");
-        updateIntent.putExtra("widgetId", mAppWidgetId);
-        sendBroadcast(updateIntent);
+        // Fetch this widget's menus natively instead of waiting for the React Native app
+        MealFetchJobService.requestRefresh(this);
+        // Also have the app refresh the widget data the next time it runs
+        WidgetDataRequestQueue.request(
+            this, WidgetUpdateScheduler.REASON_CONFIGURE, new int[] { mAppWidgetId });
+    }
+    
+    private String getSelectedMealMode() {
+        RadioGroup mealModeGroup = findViewById(R.id.meal_mode_group);
+        int checkedId = mealModeGroup.getCheckedRadioButtonId();
+        if (checkedId == R.id.meal_mode_breakfast) {
+            return MealClock.BREAKFAST;
+        } else if (checkedId == R.id.meal_mode_dinner) {
+            return MealClock.DINNER;
+        }
+        return WidgetConfig.MEAL_MODE_AUTO;
     }
 } 
\ No newline at end of file
@@ -5,7 +5,9 @@ import android.appwidget.AppWidgetManager;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.facebook.react.bridge.Arguments;
@@ -13,53 +15,87 @@ import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * React Native module for home screen widget functionality.
  * Provides methods to update widgets from JavaScript.
  */
 public class MealWidgetModule extends ReactContextBaseJavaModule {
     private static final String TAG = "MealWidgetModule";
-    private static final String PREFS_NAME = "com.kykyemek.MealWidget";
-    private static final String UPDATE_ACTION = "com.kykyemek.APPWIDGET_UPDATE";
+    public static final String NAME = "MealWidgetModule";
+    private static final String SCHEDULE_DAYS_KEY = "days";
+    // Delay before delivering queued data requests, so a burst of events becomes one batch
+    private static final long DATA_REQUEST_COALESCE_MS = 1000;
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static final Object sDataRequestLock = new Object();
+    // Module of the running React instance, null when React Native isn't running
+    private static volatile MealWidgetModule sActiveModule;
+    // Set once JS subscribed to onWidgetDataRequest and asked for the queue
+    private static boolean sJsListening;
+    private static boolean sDrainScheduled;
+    // Batch JS is handling, or -1; the next batch waits for its acknowledgement
+    private static long sBatchInFlight = -1;
+    // Widget tap received while the app was running but JS wasn't listening yet
+    private static Bundle sPendingLaunch;
+    private static boolean sJsListeningForLaunch;
     
     public MealWidgetModule(ReactApplicationContext reactContext) {
         super(reactContext);
+        sActiveModule = this;
+        // Deliver requests queued by widgets, boot and configuration while this instance runs
+        WidgetDataRequestQueue.setListener(() -> scheduleDataRequestDrain(DATA_REQUEST_COALESCE_MS));
+    }
+
+    @Override
+    public void invalidate() {
+        synchronized (sDataRequestLock) {
+            if (sActiveModule == this) {
+                sActiveModule = null;
+                WidgetDataRequestQueue.setListener(null);
+                sJsListening = false;
+                sJsListeningForLaunch = false;
+                sBatchInFlight = -1;
+            }
+        }
+        super.invalidate();
     }
 
     @Override
     public String getName() {
-        return "MealWidgetModule";
+        return NAME;
     }
 
     /**
-     * Update all widgets by sending a broadcast
+     * Update all widgets through the coalescing update scheduler
      * @param promise Promise to resolve with success or error
      */
     @ReactMethod
     public void updateWidgets(Promise promise) {
         try {
             ReactApplicationContext context = getReactApplicationContext();
-            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-            ComponentName widgetComponent = new ComponentName(context, MealWidgetProvider.class);
-            int[] appWidgetIds = appWidgetManager.getAppWidgetIds(widgetComponent);
+            int[] appWidgetIds = WidgetUpdateScheduler.getAllWidgetIds(context);
 
             if (appWidgetIds.length > 0) {
-                // Send broadcast to update widgets
-                Intent intent = new Intent(context, MealWidgetProvider.class);
-                intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-                intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, appWidgetIds);
-                context.sendBroadcast(intent);
-                
-                // Also send our custom update action
-                Intent customIntent = new Intent(UPDATE_ACTION);
-                customIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, appWidgetIds);
-                context.sendBroadcast(customIntent);
+                // Calls close together (e.g. setWidgetData then updateWidgets) share one render pass
+                WidgetUpdateScheduler.request(context, WidgetUpdateScheduler.REASON_JS, appWidgetIds);
                 
-                Log.d(TAG, "Widget update broadcast sent for " + appWidgetIds.length + " widgets");
-                promise.resolve("Widget update broadcast sent");
+                Log.d(TAG, "Widget update requested for " + appWidgetIds.length + " widgets");
+                promise.resolve("Widget update requested");
             } else {
                 Log.d(TAG, "No widgets found to update");
                 promise.resolve("No widgets found to update");
@@ -71,18 +107,20 @@ public class MealWidgetModule extends ReactContextBaseJavaModule {
     }
 
     /**
-     * Set widget data in SharedPreferences for access by widgets
-     * @param widgetData JSON string containing widget data
+     * Store a single meal's widget data in the snapshot store for access by widgets.
+     * Only widgets showing the data's city are updated.
+     * @param widgetData JSON string containing widget data, with an optional cityId
      * @param promise Promise to resolve with success or error
      */
     @ReactMethod
     public void setWidgetData(String widgetData, Promise promise) {
         try {
-            SharedPreferences.Editor prefs = getReactApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit();
-            prefs.putString("kyk_yemek_widget_data", widgetData);
-            prefs.apply();
+            // Parse once here so widgets and list factories share the result
+            ReactApplicationContext context = getReactApplicationContext();
+            WidgetSnapshot snapshot = WidgetSnapshotStore.write(context, widgetData);
+            updateWidgetsForCity(context, snapshot.cityId);
             
-            Log.d(TAG, "Widget data saved to SharedPreferences");
+            Log.d(TAG, "Widget data saved to the snapshot store, version " + snapshot.version);
             promise.resolve("Widget data saved");
         } catch (Exception e) {
             Log.e(TAG, "Error saving widget data", e);
@@ -91,25 +129,492 @@ public class MealWidgetModule extends ReactContextBaseJavaModule {
     }
     
     /**
-     * Send event to React Native when widgets request data
+     * Store a week-ahead meal schedule so widgets can switch meals on their own.
+     * Only widgets showing the schedule's city are updated.
+     * @param scheduleData JSON string with cityId, cityName and days of breakfast/dinner items
+     * @param promise Promise to resolve with success or error
+     */
+    @ReactMethod
+    public void setWidgetSchedule(String scheduleData, Promise promise) {
+        try {
+            ReactApplicationContext context = getReactApplicationContext();
+            MealSchedule schedule = MealScheduleStore.write(context, scheduleData);
+            MealBoundaryAlarm.scheduleNext(context);
+            updateWidgetsForCity(context, schedule.cityId);
+            
+            Log.d(TAG, "Widget schedule saved with " + schedule.getSlotCount() + " meal slots");
+            promise.resolve("Widget schedule saved");
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving widget schedule", e);
+            promise.reject("ERROR", "Failed to save widget schedule: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Persist widget data passed as a structured object and queue the widget
+     * update in the same call. Accepts either a week-ahead schedule
+     * ({cityId, cityName, days}) or a single meal ({cityId, mealType, mealDate, cityName, items}).
+     * The promise resolves once the update is queued.
+     * @param payload Schedule or single meal data
+     * @param promise Promise to resolve with the stored version, the size of the stored file and elapsed time
+     */
+    @ReactMethod
+    public void publishWidgetData(ReadableMap payload, Promise promise) {
+        long startNanos = System.nanoTime();
+        try {
+            ReactApplicationContext context = getReactApplicationContext();
+            JSONObject data = toJSONObject(payload);
+
+            String cityId;
+            long version;
+            long bytesWritten;
+            if (payload.hasKey(SCHEDULE_DAYS_KEY)) {
+                MealSchedule schedule = MealScheduleStore.write(context, data);
+                MealBoundaryAlarm.scheduleNext(context);
+                cityId = schedule.cityId;
+                version = schedule.version;
+                bytesWritten = MealScheduleStore.getStoredSize(context, cityId);
+            } else {
+                WidgetSnapshot snapshot = WidgetSnapshotStore.write(context, data);
+                cityId = snapshot.cityId;
+                version = snapshot.version;
+                bytesWritten = WidgetSnapshotStore.getStoredSize(context, cityId);
+            }
+            updateWidgetsForCity(context, cityId);
+
+            WritableMap result = Arguments.createMap();
+            result.putDouble("version", version);
+            result.putDouble("bytesWritten", bytesWritten);
+            result.putDouble("elapsedMs", (System.nanoTime() - startNanos) / 1e6);
+            promise.resolve(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Error publishing widget data", e);
+            promise.reject("ERROR", "Failed to publish widget data: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Save the settings of a placed widget and re-render it
+     * @param appWidgetId Widget to configure
+     * @param cityId City to show, or null to follow the app's city
+     * @param mealMode AUTO, BREAKFAST or DINNER
+     * @param promise Promise to resolve with success or error
+     */
+    @ReactMethod
+    public void setWidgetConfig(int appWidgetId, String cityId, String mealMode, Promise promise) {
+        try {
+            ReactApplicationContext context = getReactApplicationContext();
+            WidgetConfigStore.save(context, new WidgetConfig(appWidgetId, cityId, mealMode));
+            WidgetUpdateScheduler.request(context, WidgetUpdateScheduler.REASON_CONFIGURE, new int[] { appWidgetId });
+            promise.resolve("Widget config saved");
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving widget config", e);
+            promise.reject("ERROR", "Failed to save widget config: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Record the city selected in the app, which widgets without their own city follow,
+     * and re-render those widgets if it changed
+     * @param cityId City selected in the app
+     * @param promise Promise to resolve with success or error
+     */
+    @ReactMethod
+    public void setDefaultCity(String cityId, Promise promise) {
+        try {
+            ReactApplicationContext context = getReactApplicationContext();
+            int[] appWidgetIds = WidgetConfigStore.setDefaultCityId(context, cityId);
+            if (appWidgetIds.length > 0) {
+                WidgetUpdateScheduler.request(context, WidgetUpdateScheduler.REASON_JS, appWidgetIds);
+            }
+            promise.resolve("Default city saved");
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving default city", e);
+            promise.reject("ERROR", "Failed to save default city: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Get the cities the given widgets show, so each one can be refreshed once
+     * @param widgetIds Widgets named by an onWidgetDataRequest batch
+     * @param promise Promise to resolve with the distinct city ids, plus one null if a widget
+     *                follows the app and the app hasn't written a city yet
+     */
+    @ReactMethod
+    public void getWidgetCityIds(ReadableArray widgetIds, Promise promise) {
+        ReactApplicationContext context = getReactApplicationContext();
+        WritableArray cityIds = Arguments.createArray();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < widgetIds.size(); i++) {
+            String cityId = WidgetConfigStore.resolveCityId(
+                context, WidgetConfigStore.get(context, widgetIds.getInt(i)));
+            if (!seen.add(cityId)) {
+                continue;
+            }
+            if (cityId != null) {
+                cityIds.pushString(cityId);
+            } else {
+                cityIds.pushNull();
+            }
+        }
+        promise.resolve(cityIds);
+    }
+    
+    /**
+     * Re-render the widgets showing a city after its data was written. The data may be
+     * for a widget's own city, so the app's city is left alone; setDefaultCity changes it.
+     */
+    private static void updateWidgetsForCity(Context context, String cityId) {
+        int[] appWidgetIds = WidgetConfigStore.getWidgetIdsForCity(context, cityId);
+        if (appWidgetIds.length > 0) {
+            WidgetUpdateScheduler.request(context, WidgetUpdateScheduler.REASON_JS, appWidgetIds);
+        }
+    }
+    
+    private static JSONObject toJSONObject(ReadableMap map) throws JSONException {
+        JSONObject object = new JSONObject();
+        ReadableMapKeySetIterator iterator = map.keySetIterator();
+        while (iterator.hasNextKey()) {
+            String key = iterator.nextKey();
+            switch (map.getType(key)) {
+                case Null:
+                    object.put(key, JSONObject.NULL);
+                    break;
+                case Boolean:
+                    object.put(key, map.getBoolean(key));
+                    break;
+                case Number:
+                    object.put(key, toJsonNumber(map.getDouble(key)));
+                    break;
+                case String:
+                    object.put(key, map.getString(key));
+                    break;
+                case Map:
+                    object.put(key, toJSONObject(map.getMap(key)));
+                    break;
+                case Array:
+                    object.put(key, toJSONArray(map.getArray(key)));
+                    break;
+            }
+        }
+        return object;
+    }
+
+    // JS numbers arrive as doubles; keep whole numbers integral so ids read back as "34", not "34.0"
+    private static Object toJsonNumber(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return (long) value;
+        }
+        return value;
+    }
+
+    private static JSONArray toJSONArray(ReadableArray array) throws JSONException {
+        JSONArray result = new JSONArray();
+        for (int i = 0; i < array.size(); i++) {
+            switch (array.getType(i)) {
+                case Null:
+                    result.put(JSONObject.NULL);
+                    break;
+                case Boolean:
+                    result.put(array.getBoolean(i));
+                    break;
+                case Number:
+                    result.put(toJsonNumber(array.getDouble(i)));
+                    break;
+                case String:
+                    result.put(array.getString(i));
+                    break;
+                case Map:
+                    result.put(toJSONObject(array.getMap(i)));
+                    break;
+                case Array:
+                    result.put(toJSONArray(array.getArray(i)));
+                    break;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Get snapshot cache counters for debugging
+     * @param promise Promise to resolve with the parse hit and miss counts
+     */
+    @ReactMethod
+    public void getSnapshotStats(Promise promise) {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("parseHits", WidgetSnapshotStore.getParseHits());
+        stats.putDouble("parseMisses", WidgetSnapshotStore.getParseMisses());
+        promise.resolve(stats);
+    }
+    
+    /**
+     * Get the snapshot the city's widgets show right now. New architecture builds
+     * read it synchronously through the MealWidgetSnapshot TurboModule instead.
+     * @param cityId City key, or null for data written without a city
+     * @param promise Promise to resolve with the snapshot fields, or null if there is no valid data
      */
-    public static void notifyWidgetDataRequest(ReactApplicationContext reactContext) {
-        if (reactContext == null || !reactContext.hasActiveReactInstance()) {
-            Log.d(TAG, "Cannot send widget data request event, React context not active");
+    @ReactMethod
+    public void getWidgetSnapshot(String cityId, Promise promise) {
+        WidgetSnapshot snapshot = WidgetSnapshotStore.currentForCity(getReactApplicationContext(), cityId);
+        promise.resolve(snapshot != null ? Arguments.fromBundle(WidgetLaunchOptions.toBundle(snapshot)) : null);
+    }
+
+    /**
+     * Get the version of the data the city's widgets show right now
+     * @param cityId City key, or null for data written without a city
+     * @param promise Promise to resolve with the version, or 0 if there is no valid data
+     */
+    @ReactMethod
+    public void getSnapshotVersion(String cityId, Promise promise) {
+        WidgetSnapshot snapshot = WidgetSnapshotStore.currentForCity(getReactApplicationContext(), cityId);
+        promise.resolve(snapshot != null ? (double) snapshot.version : 0d);
+    }
+
+    /**
+     * Get the version of the city's week-ahead schedule. New architecture builds
+     * read it synchronously through the MealWidgetSnapshot TurboModule instead.
+     * @param cityId City key
+     * @param promise Promise to resolve with the version, or 0 if no schedule is stored
+     */
+    @ReactMethod
+    public void getScheduleVersion(String cityId, Promise promise) {
+        promise.resolve((double) MealScheduleStore.getVersion(getReactApplicationContext(), cityId));
+    }
+
+    /**
+     * Get update scheduler counters for debugging
+     * @param promise Promise to resolve with request, merge and render pass counts
+     */
+    @ReactMethod
+    public void getUpdateStats(Promise promise) {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("requests", WidgetUpdateScheduler.getRequestCount());
+        stats.putDouble("merged", WidgetUpdateScheduler.getMergedCount());
+        stats.putDouble("renderPasses", WidgetUpdateScheduler.getRenderPassCount());
+        stats.putDouble("renderedWidgets", WidgetUpdateScheduler.getRenderedWidgetCount());
+        stats.putDouble("renderGroups", WidgetUpdateScheduler.getRenderGroupCount());
+        promise.resolve(stats);
+    }
+    
+    /**
+     * Get widget pipeline metrics: update counts, render latency per layout size,
+     * parse time, RemoteViews and list factory activity, and data-to-push latency
+     * @param promise Promise to resolve with the metrics
+     */
+    @ReactMethod
+    public void getWidgetMetrics(Promise promise) {
+        WritableMap metrics = Arguments.createMap();
+        metrics.putDouble("updateRequests", WidgetUpdateScheduler.getRequestCount());
+        metrics.putDouble("coalescedRequests", WidgetUpdateScheduler.getMergedCount());
+        metrics.putDouble("renderPasses", WidgetUpdateScheduler.getRenderPassCount());
+        metrics.putDouble("renderGroups", WidgetUpdateScheduler.getRenderGroupCount());
+        metrics.putDouble("fullUpdates", WidgetMetrics.getFullUpdates());
+        metrics.putDouble("partialUpdates", WidgetMetrics.getPartialUpdates());
+        metrics.putDouble("skippedUpdates", WidgetMetrics.getSkippedUpdates());
+        metrics.putDouble("staleRendersDropped", WidgetMetrics.getStaleRendersDropped());
+        metrics.putDouble("appWidgetManagerCalls", WidgetMetrics.getAppWidgetManagerCalls());
+        metrics.putDouble("remoteViewsCreated", WidgetMetrics.getRemoteViewsCreated());
+        metrics.putDouble("getViewAtCalls", WidgetMetrics.getGetViewAtCalls());
+        metrics.putDouble("factoryReloads", WidgetMetrics.getFactoryReloads());
+        metrics.putMap("renderSmall", toMap(WidgetMetrics.RENDER_SMALL));
+        metrics.putMap("renderMedium", toMap(WidgetMetrics.RENDER_MEDIUM));
+        metrics.putMap("renderLarge", toMap(WidgetMetrics.RENDER_LARGE));
+        metrics.putMap("renderResponsive", toMap(WidgetMetrics.RENDER_RESPONSIVE));
+        metrics.putMap("parse", toMap(WidgetMetrics.PARSE));
+        metrics.putMap("dataToPush", toMap(WidgetMetrics.DATA_TO_PUSH));
+        metrics.putMap("startup", getStartupTimings());
+        promise.resolve(metrics);
+    }
+
+    private WritableMap getStartupTimings() {
+        ReactApplicationContext context = getReactApplicationContext();
+        WritableMap startup = Arguments.createMap();
+        startup.putDouble("appCreatedMs", StartupTimings.getAppCreatedMs());
+        startup.putDouble("widgetOnlyStarts", StartupTimings.getWidgetOnlyStartCount(context, false));
+        startup.putDouble("widgetOnlyAppCreatedMs", StartupTimings.getWidgetOnlyAppCreatedMs(context, false));
+        startup.putDouble("widgetOnlyFirstPushMs", StartupTimings.getWidgetOnlyFirstPushMs(context, false));
+        startup.putDouble("eagerWidgetOnlyStarts", StartupTimings.getWidgetOnlyStartCount(context, true));
+        startup.putDouble("eagerWidgetOnlyAppCreatedMs", StartupTimings.getWidgetOnlyAppCreatedMs(context, true));
+        startup.putDouble("eagerWidgetOnlyFirstPushMs", StartupTimings.getWidgetOnlyFirstPushMs(context, true));
+        startup.putBoolean("eagerInitForced", StartupTimings.isEagerInitForced(context));
+        startup.putDouble("reactInitMs", StartupTimings.getLastReactInitMs(context));
+        return startup;
+    }
+
+    private static WritableMap toMap(WidgetMetrics.Histogram histogram) {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("count", histogram.getCount());
+        map.putDouble("meanMs", histogram.getMeanMs());
+        map.putDouble("p50Ms", histogram.getPercentileMs(50));
+        map.putDouble("p95Ms", histogram.getPercentileMs(95));
+        map.putDouble("maxMs", histogram.getMaxMs());
+        return map;
+    }
+    
+    /**
+     * Get native menu fetch cache counters for debugging
+     * @param promise Promise to resolve with hit, miss, revalidation and bytes saved counts
+     */
+    @ReactMethod
+    public void getFetchCacheStats(Promise promise) {
+        WritableMap stats = Arguments.createMap();
+        long hits = MenuResponseCache.getHitCount();
+        long misses = MenuResponseCache.getMissCount();
+        stats.putDouble("hits", hits);
+        stats.putDouble("misses", misses);
+        stats.putDouble("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0);
+        stats.putDouble("revalidations", MenuResponseCache.getRevalidationCount());
+        stats.putDouble("staleServed", MenuResponseCache.getStaleServedCount());
+        stats.putDouble("bytesSaved", MenuResponseCache.getBytesSaved());
+        promise.resolve(stats);
+    }
+    
+    /**
+     * Start receiving widget data requests: anything queued while JS wasn't
+     * listening is delivered right away. Call after subscribing to onWidgetDataRequest.
+     */
+    @ReactMethod
+    public void flushWidgetDataRequests() {
+        synchronized (sDataRequestLock) {
+            sJsListening = true;
+            // A batch sent to a previous JS instance will never be acknowledged
+            sBatchInFlight = -1;
+        }
+        scheduleDataRequestDrain(0);
+    }
+
+    /**
+     * Acknowledge a delivered batch. Requests that arrived while JS was handling
+     * it are sent as the next batch.
+     * @param batchId Id from the onWidgetDataRequest event
+     */
+    @ReactMethod
+    public void completeWidgetDataRequests(double batchId) {
+        WidgetDataRequestQueue.acknowledge(getReactApplicationContext(), (long) batchId);
+        synchronized (sDataRequestLock) {
+            if (sBatchInFlight == (long) batchId) {
+                sBatchInFlight = -1;
+            }
+        }
+        scheduleDataRequestDrain(DATA_REQUEST_COALESCE_MS);
+    }
+
+    /**
+     * Start receiving widget taps that arrive while the app is running. A tap that
+     * arrived before JS subscribed to onWidgetLaunch is delivered right away.
+     */
+    @ReactMethod
+    public void flushWidgetLaunch() {
+        Bundle launch;
+        synchronized (sDataRequestLock) {
+            sJsListeningForLaunch = true;
+            launch = sPendingLaunch;
+            sPendingLaunch = null;
+        }
+        if (launch != null) {
+            deliverWidgetLaunch(launch);
+        }
+    }
+
+    /**
+     * Send a widget tap on the running activity to JS as an onWidgetLaunch event,
+     * or keep the latest one until JS calls {@link #flushWidgetLaunch()}
+     * @param launch Launch from {@link WidgetLaunchOptions#buildLaunch}
+     */
+    static void deliverWidgetLaunch(Bundle launch) {
+        if (launch == null) {
+            return;
+        }
+        MealWidgetModule module;
+        synchronized (sDataRequestLock) {
+            module = sActiveModule;
+            if (module == null || !sJsListeningForLaunch
+                    || !module.getReactApplicationContext().hasActiveReactInstance()) {
+                sPendingLaunch = launch;
+                return;
+            }
+        }
+        try {
+            module.getReactApplicationContext()
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit("onWidgetLaunch", Arguments.fromBundle(launch));
+            Log.d(TAG, "Sent widget launch to JS");
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending widget launch event", e);
+        }
+    }
+
+    private static void scheduleDataRequestDrain(long delayMs) {
+        synchronized (sDataRequestLock) {
+            // A pending drain already covers this request
+            if (sDrainScheduled) {
+                return;
+            }
+            sDrainScheduled = true;
+        }
+        sMainHandler.postDelayed(MealWidgetModule::drainDataRequests, delayMs);
+    }
+
+    /**
+     * Send everything queued as one event, unless JS isn't listening yet or is
+     * still handling the previous batch
+     */
+    private static void drainDataRequests() {
+        MealWidgetModule module;
+        synchronized (sDataRequestLock) {
+            sDrainScheduled = false;
+            module = sActiveModule;
+            if (module == null || !sJsListening || sBatchInFlight >= 0) {
+                return;
+            }
+        }
+
+        ReactApplicationContext reactContext = module.getReactApplicationContext();
+        if (!reactContext.hasActiveReactInstance()) {
+            Log.d(TAG, "React context not active, keeping widget data requests queued");
+            return;
+        }
+        WidgetDataRequestQueue.Batch batch = WidgetDataRequestQueue.peek(reactContext);
+        if (batch == null) {
             return;
         }
-        
+
         WritableMap params = Arguments.createMap();
         params.putString("action", "dataRequest");
-        
+        params.putDouble("batchId", batch.id);
+        WritableArray requests = Arguments.createArray();
+        for (WidgetDataRequestQueue.Request request : batch.requests) {
+            WritableMap entry = Arguments.createMap();
+            entry.putString("reason", request.reason);
+            entry.putArray("widgetIds", toArray(request.widgetIds));
+            entry.putDouble("requestedAt", request.requestedAt);
+            requests.pushMap(entry);
+        }
+        params.putArray("requests", requests);
+        params.putArray("widgetIds", toArray(batch.getWidgetIds()));
+
         try {
+            synchronized (sDataRequestLock) {
+                sBatchInFlight = batch.id;
+            }
             reactContext
                 .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
                 .emit("onWidgetDataRequest", params);
-            
-            Log.d(TAG, "Widget data request event sent to React Native");
+
+            Log.d(TAG, "Sent " + batch.requests.size() + " widget data requests as batch " + batch.id);
         } catch (Exception e) {
+            synchronized (sDataRequestLock) {
+                sBatchInFlight = -1;
+            }
             Log.e(TAG, "Error sending widget data request event", e);
         }
     }
-} 
\ No newline at end of file
+
+    private static WritableArray toArray(List<Integer> values) {
+        WritableArray array = Arguments.createArray();
+        for (int value : values) {
+            array.pushInt(value);
+        }
+        return array;
+    }
+}
@@ -1,31 +1,56 @@
 package com.kykyemek;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
-import com.facebook.react.ReactPackage;
+import com.facebook.react.BaseReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.uimanager.ViewManager;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 
 /**
- * React Native package that registers the MealWidgetModule.
+ * React Native package that registers the MealWidgetModule and, in new
+ * architecture builds, the MealWidgetSnapshot TurboModule.
  */
-public class MealWidgetPackage implements ReactPackage {
-    @NonNull
+public class MealWidgetPackage extends BaseReactPackage {
+    @Nullable
     @Override
-    public List<NativeModule> createNativeModules(@NonNull ReactApplicationContext reactContext) {
-        List<NativeModule> modules = new ArrayList<>();
-        modules.add(new MealWidgetModule(reactContext));
-        return modules;
+    public NativeModule getModule(@NonNull String name, @NonNull ReactApplicationContext reactContext) {
+        if (MealWidgetModule.NAME.equals(name)) {
+            return new MealWidgetModule(reactContext);
+        }
+        if (BuildConfig.IS_NEW_ARCHITECTURE_ENABLED && NativeMealWidgetSnapshotSpec.NAME.equals(name)) {
+            return new MealWidgetSnapshotModule(reactContext);
+        }
+        return null;
     }
 
     @NonNull
     @Override
-    public List<ViewManager> createViewManagers(@NonNull ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            Map<String, ReactModuleInfo> moduleInfos = new HashMap<>();
+            moduleInfos.put(MealWidgetModule.NAME, new ReactModuleInfo(
+                MealWidgetModule.NAME,
+                MealWidgetModule.class.getName(),
+                false, // canOverrideExistingModule
+                false, // needsEagerInit
+                false, // isCxxModule
+                false)); // isTurboModule
+            if (BuildConfig.IS_NEW_ARCHITECTURE_ENABLED) {
+                moduleInfos.put(NativeMealWidgetSnapshotSpec.NAME, new ReactModuleInfo(
+                    NativeMealWidgetSnapshotSpec.NAME,
+                    MealWidgetSnapshotModule.class.getName(),
+                    false, // canOverrideExistingModule
+                    false, // needsEagerInit
+                    false, // isCxxModule
+                    true)); // isTurboModule
+            }
+            return moduleInfos;
+        };
     }
-} 
\ No newline at end of file
+}
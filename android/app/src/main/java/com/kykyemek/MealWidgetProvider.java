@@ -4,38 +4,102 @@ import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SizeF;
 import android.widget.RemoteViews;
 import android.view.View;
 import android.app.PendingIntent;
 import android.widget.RemoteViewsService;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of App Widget functionality.
  * App Widget Configuration implemented in {@link MealWidgetConfigureActivity MealWidgetConfigureActivity}
  */
 public class MealWidgetProvider extends AppWidgetProvider {
+    private static final String TAG = "MealWidgetProvider";
+    public static final String ACTION_CUSTOM_UPDATE = "com.kykyemek.APPWIDGET_UPDATE";
+    // Layout the list service should fill; medium widgets only get the items they show
+    static final String EXTRA_LAYOUT_ID = "com.kykyemek.EXTRA_LAYOUT_ID";
 
-    private static final String PREFS_NAME = "com.kykyemek.MealWidget";
-    private static final String WIDGET_DATA_KEY = "kyk_yemek_widget_data";
-    private static final String WIDGET_MEAL_TYPE_KEY = "mealType";
-    private static final String WIDGET_MEAL_DATE_KEY = "mealDate";
-    private static final String WIDGET_CITY_NAME_KEY = "cityName";
-    private static final String WIDGET_ITEMS_KEY = "items";
+    // Minimum sizes (dp) for each layout, matching the thresholds in getLayoutId
+    private static final SizeF SMALL_MIN_SIZE = new SizeF(110f, 40f);
+    private static final SizeF MEDIUM_MIN_SIZE = new SizeF(180f, 110f);
+    private static final SizeF LARGE_MIN_SIZE = new SizeF(250f, 180f);
+
+    // Remembers what each widget last rendered, so unchanged widgets can be skipped
+    private static final WidgetRenderer sRenderer = new WidgetRenderer(
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.S, R.layout.meal_widget_small);
+
+    // Tap intents by data key, shared by every widget showing that meal; only recent meals are kept
+    private static final int MAX_LAUNCH_INTENTS = 16;
+    private static final Map<String, PendingIntent> sLaunchIntents =
+        new LinkedHashMap<String, PendingIntent>(MAX_LAUNCH_INTENTS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PendingIntent> eldest) {
+                return size() > MAX_LAUNCH_INTENTS;
+            }
+        };
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        // There may be multiple widgets active, so update all of them
-        for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId);
+        // Coalesced with any other pending update requests and rendered off the main thread;
+        // the broadcast stays alive until the render pass is done
+        WidgetUpdateScheduler.request(context, WidgetUpdateScheduler.REASON_SYSTEM, appWidgetIds, goAsync());
+    }
+
+    @Override
+    public void onAppWidgetOptionsChanged(Context context, AppWidgetManager appWidgetManager, int appWidgetId,
+                                          Bundle newOptions) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            // The launcher already switches between the size-mapped layouts on its own
+            return;
         }
+        // Re-render through the scheduler; the fingerprint skips it if the layout bucket didn't change
+        WidgetUpdateScheduler.request(context, WidgetUpdateScheduler.REASON_RESIZE,
+                new int[] { appWidgetId }, goAsync());
+    }
+
+    @Override
+    public void onEnabled(Context context) {
+        MealBoundaryAlarm.scheduleNext(context);
+        MealFetchJobService.schedulePeriodic(context);
+    }
+
+    @Override
+    public void onDisabled(Context context) {
+        MealBoundaryAlarm.cancel(context);
+        MealFetchJobService.cancel(context);
+    }
+
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
+        forgetWidgets(appWidgetIds);
+        WidgetConfigStore.delete(context, appWidgetIds);
+    }
+
+    /**
+     * Drop the in-memory render state of removed widgets
+     */
+    static void forgetWidgets(int[] appWidgetIds) {
+        sRenderer.forget(appWidgetIds);
+        WidgetUpdateScheduler.forget(appWidgetIds);
+    }
+
+    /**
+     * Get the widgets that may show the empty state: drawn without data, or not
+     * drawn by this process at all
+     */
+    static int[] getWidgetsWithoutData(int[] appWidgetIds) {
+        return sRenderer.getWidgetsWithoutData(appWidgetIds);
     }
 
     @Override
@@ -43,54 +107,174 @@ public class MealWidgetProvider extends AppWidgetProvider {
         super.onReceive(context, intent);
         
         // Handle custom refresh broadcast
-        if (intent.getAction() != null && intent.getAction().equals("com.kykyemek.APPWIDGET_UPDATE")) {
+        if (ACTION_CUSTOM_UPDATE.equals(intent.getAction())) {
             int[] appWidgetIds = intent.getIntArrayExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS);
-            if (appWidgetIds != null) {
-                AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-                this.onUpdate(context, appWidgetManager, appWidgetIds);
+            WidgetUpdateScheduler.request(context, WidgetUpdateScheduler.REASON_BROADCAST, appWidgetIds, goAsync());
+        }
+
+        if (Intent.ACTION_TIME_CHANGED.equals(intent.getAction())
+                || Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+            // Countdown bases were computed against the old wall clock, so redraw every widget
+            sRenderer.clear();
+        }
+
+        // Switch meals and countdowns at each boundary, or after the clock was changed
+        if (MealBoundaryAlarm.ACTION_MEAL_BOUNDARY.equals(intent.getAction())
+                || Intent.ACTION_TIME_CHANGED.equals(intent.getAction())
+                || Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+            if (WidgetUpdateScheduler.getAllWidgetIds(context).length > 0) {
+                WidgetUpdateScheduler.request(context, WidgetUpdateScheduler.REASON_MEAL_BOUNDARY, null, goAsync());
+            } else {
+                MealBoundaryAlarm.cancel(context);
             }
         }
     }
 
-    public static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
-        // Read from SharedPreferences
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String widgetDataJson = prefs.getString(WIDGET_DATA_KEY, null);
+    /**
+     * Render a batch of widgets with {@link WidgetRenderer}, which groups widgets that
+     * would show the same thing so each group's RemoteViews are built once and pushed
+     * to all of its widgets in a single call. Runs on the scheduler's render thread only.
+     * @param appWidgetIds Widgets to render
+     * @param generations Update generation each widget's render belongs to; a widget's
+     *                    result is dropped if a newer update for it was requested in the meantime
+     * @return Number of distinct RemoteViews configurations built
+     */
+    static int updateAppWidgets(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+                                long[] generations) {
+        return sRenderer.render(new RenderHost(context, appWidgetManager), appWidgetIds, generations,
+                System.currentTimeMillis());
+    }
+
+    /**
+     * Reads widget data from the stores and pushes RemoteViews through the AppWidgetManager
+     */
+    private static final class RenderHost implements WidgetRenderer.Host<RemoteViews> {
+        private final Context context;
+        private final AppWidgetManager appWidgetManager;
+
+        RenderHost(Context context, AppWidgetManager appWidgetManager) {
+            this.context = context;
+            this.appWidgetManager = appWidgetManager;
+        }
+
+        @Override
+        public WidgetSnapshot snapshotFor(int appWidgetId) {
+            // Read the shared snapshot, parsed at most once per data write
+            return WidgetSnapshotStore.current(context, appWidgetId);
+        }
+
+        @Override
+        public int layoutFor(int appWidgetId) {
+            return getLayoutId(appWidgetManager, appWidgetId);
+        }
+
+        @Override
+        public boolean isLatestGeneration(int appWidgetId, long generation) {
+            return WidgetUpdateScheduler.isLatestGeneration(appWidgetId, generation);
+        }
+
+        @Override
+        public void requestData(int[] appWidgetIds) {
+            // Ask the app for data; the request waits in the queue until React Native runs
+            WidgetDataRequestQueue.request(context, WidgetUpdateScheduler.REASON_NO_DATA, appWidgetIds);
+        }
+
+        @Override
+        public RemoteViews buildViews(WidgetRenderPlan.Group group) {
+            return buildGroupViews(context, group);
+        }
+
+        @Override
+        public void updateAppWidget(int[] appWidgetIds, RemoteViews views) {
+            appWidgetManager.updateAppWidget(appWidgetIds, views);
+        }
+
+        @Override
+        public void partiallyUpdateAppWidget(int[] appWidgetIds, RemoteViews views) {
+            appWidgetManager.partiallyUpdateAppWidget(appWidgetIds, views);
+        }
+
+        @Override
+        public void notifyItemsChanged(int[] appWidgetIds) {
+            appWidgetManager.notifyAppWidgetViewDataChanged(appWidgetIds, R.id.menuItemList);
+        }
+
+        @Override
+        public void onPushed(WidgetRenderPlan.Group group) {
+            StartupTimings.markWidgetPushed(context);
+        }
+    }
+
+    /**
+     * Build the RemoteViews shared by every widget in a group
+     */
+    private static RemoteViews buildGroupViews(Context context, WidgetRenderPlan.Group group) {
+        int layoutId = group.layoutId;
+        WidgetSnapshot snapshot = group.snapshot;
+        MealCountdown countdown = group.countdown;
+
+        if (group.partial) {
+            // Only the menu items changed: patch the list views and reload the list data
+            RemoteViews views = new RemoteViews(context.getPackageName(), layoutId);
+            setupItemList(context, views, layoutId, snapshot, renderModelOf(context, snapshot));
+            WidgetMetrics.countRemoteViews(1);
+            return views;
+        } else if (layoutId == WidgetRenderPlan.LAYOUT_RESPONSIVE) {
+            PendingIntent launchIntent = getLaunchPendingIntent(context, snapshot);
+            Map<SizeF, RemoteViews> viewsBySize = new HashMap<>(4);
+            viewsBySize.put(SMALL_MIN_SIZE,
+                    buildViews(context, R.layout.meal_widget_small, snapshot, countdown, launchIntent));
+            viewsBySize.put(MEDIUM_MIN_SIZE,
+                    buildViews(context, R.layout.meal_widget_medium, snapshot, countdown, launchIntent));
+            viewsBySize.put(LARGE_MIN_SIZE,
+                    buildViews(context, R.layout.meal_widget_large, snapshot, countdown, launchIntent));
+            WidgetMetrics.countRemoteViews(4);
+            return new RemoteViews(viewsBySize);
+        } else {
+            WidgetMetrics.countRemoteViews(1);
+            return buildViews(context, layoutId, snapshot, countdown, getLaunchPendingIntent(context, snapshot));
+        }
+    }
 
-        // Get Views based on widget size
-        int layoutId = getLayoutId(appWidgetManager, appWidgetId);
+    private static RemoteViews buildViews(Context context, int layoutId, WidgetSnapshot snapshot,
+                                          MealCountdown countdown, PendingIntent launchIntent) {
         RemoteViews views = new RemoteViews(context.getPackageName(), layoutId);
 
         // If no data, show default state
-        if (widgetDataJson == null) {
+        if (snapshot == null) {
             setupEmptyState(context, views, layoutId);
         } else {
-            try {
-                populateWidget(context, views, layoutId, new JSONObject(widgetDataJson));
-            } catch (JSONException e) {
-                e.printStackTrace();
-                setupEmptyState(context, views, layoutId);
-            }
+            populateWidget(context, views, layoutId, snapshot, renderModelOf(context, snapshot));
         }
+        bindCountdown(context, views, countdown);
 
         // Set up click intent - open the app
-        Intent intent = context.getPackageManager().getLaunchIntentForPackage(context.getPackageName());
-        if (intent != null) {
-            PendingIntent pendingIntent = PendingIntent.getActivity(
-                context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-            views.setOnClickPendingIntent(android.R.id.background, pendingIntent);
+        if (launchIntent != null) {
+            views.setOnClickPendingIntent(android.R.id.background, launchIntent);
         }
+        return views;
+    }
 
-        // Tell the AppWidgetManager to perform an update on the current app widget
-        appWidgetManager.updateAppWidget(appWidgetId, views);
+    private static PendingIntent getLaunchPendingIntent(Context context, WidgetSnapshot snapshot) {
+        String dataKey = WidgetLaunchOptions.dataKey(snapshot);
+        synchronized (sLaunchIntents) {
+            PendingIntent launchIntent = sLaunchIntents.get(dataKey);
+            if (launchIntent == null) {
+                Intent intent = WidgetLaunchOptions.createIntent(context, snapshot);
+                // The intent's data URI carries the data key, so each key gets its own PendingIntent
+                launchIntent = PendingIntent.getActivity(context, 0, intent,
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+                sLaunchIntents.put(dataKey, launchIntent);
+            }
+            return launchIntent;
+        }
     }
 
     private static int getLayoutId(AppWidgetManager appWidgetManager, int appWidgetId) {
         // Determine widget size and return appropriate layout
-        int width = appWidgetManager.getAppWidgetOptions(appWidgetId)
-                .getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH);
-        int height = appWidgetManager.getAppWidgetOptions(appWidgetId)
-                .getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_HEIGHT);
+        Bundle options = appWidgetManager.getAppWidgetOptions(appWidgetId);
+        int width = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH);
+        int height = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_HEIGHT);
 
         if (width >= 250 && height >= 180) {
             return R.layout.meal_widget_large;
@@ -122,54 +306,114 @@ public class MealWidgetProvider extends AppWidgetProvider {
         }
     }
 
-    private static void populateWidget(Context context, RemoteViews views, int layoutId, JSONObject data) throws JSONException {
-        // Extract data
-        String mealType = data.getString(WIDGET_MEAL_TYPE_KEY);
-        String mealDate = data.getString(WIDGET_MEAL_DATE_KEY);
-        String cityName = data.has(WIDGET_CITY_NAME_KEY) && !data.isNull(WIDGET_CITY_NAME_KEY) 
-                           ? data.getString(WIDGET_CITY_NAME_KEY) : null;
-        JSONArray items = data.getJSONArray(WIDGET_ITEMS_KEY);
+    /**
+     * Bind the countdown to the layout's Chronometer, or hide it
+     */
+    private static void bindCountdown(Context context, RemoteViews views, MealCountdown countdown) {
+        if (countdown.phase == MealCountdown.Phase.NONE) {
+            views.setViewVisibility(R.id.countdownChronometer, View.GONE);
+            return;
+        }
+        // Chronometers count on the elapsed realtime clock, not the wall clock
+        long base = SystemClock.elapsedRealtime() + (countdown.targetMillis - System.currentTimeMillis());
+        String format = context.getString(countdown.phase == MealCountdown.Phase.UNTIL_START
+                ? R.string.widget_countdown_starts : R.string.widget_countdown_ends);
+        views.setChronometer(R.id.countdownChronometer, base, format, true);
+        views.setChronometerCountDown(R.id.countdownChronometer, true);
+        views.setViewVisibility(R.id.countdownChronometer, View.VISIBLE);
+    }
 
-        // Format meal type (BREAKFAST or DINNER)
-        String displayMealType = "BREAKFAST".equals(mealType) 
-            ? context.getString(R.string.widget_breakfast) 
-            : context.getString(R.string.widget_dinner);
-        
-        // Format date
-        String displayDate = formatDate(mealDate);
+    // Snapshots from the stores always carry a model; building one here is only a fallback
+    static WidgetRenderModel renderModelOf(Context context, WidgetSnapshot snapshot) {
+        return snapshot.renderModel != null
+                ? snapshot.renderModel : WidgetSnapshotStore.withRenderModel(context, snapshot).renderModel;
+    }
 
-        // Set the text values
-        views.setTextViewText(R.id.mealTypeText, displayMealType);
-        views.setTextViewText(R.id.dateText, displayDate);
+    private static void populateWidget(Context context, RemoteViews views, int layoutId, WidgetSnapshot snapshot,
+                                       WidgetRenderModel model) {
+        // Labels and date were localized when the data was written
+        views.setTextViewText(R.id.mealTypeText, model.mealLabel);
+        views.setTextViewText(R.id.dateText, model.displayDate);
         
         // Set location text if available
-        if (cityName != null && !cityName.isEmpty()) {
+        if (model.locationText != null) {
             views.setViewVisibility(R.id.locationText, View.VISIBLE);
-            views.setTextViewText(R.id.locationText, cityName);
+            views.setTextViewText(R.id.locationText, model.locationText);
         } else {
             views.setViewVisibility(R.id.locationText, View.GONE);
         }
 
         // For medium and large layouts, setup the list view
-        if (layoutId != R.layout.meal_widget_small && items.length() > 0) {
-            if (layoutId == R.layout.meal_widget_medium) {
-                setupMediumWidgetList(context, views, items);
-            } else {
-                setupLargeWidgetList(context, views, items);
-            }
+        setupItemList(context, views, layoutId, snapshot, model);
+    }
+
+    private static void setupItemList(Context context, RemoteViews views, int layoutId, WidgetSnapshot snapshot,
+                                      WidgetRenderModel model) {
+        if (layoutId == R.layout.meal_widget_medium) {
+            setupMediumWidgetList(context, views, snapshot, model);
+        } else if (layoutId == R.layout.meal_widget_large) {
+            setupLargeWidgetList(context, views, snapshot, model);
+        }
+    }
+
+    private static void setListAdapter(Context context, RemoteViews views, int layoutId, WidgetSnapshot snapshot,
+                                       WidgetRenderModel model, List<String> items) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            // Ship the items with the update: no service bind, factory or per-item IPC
+            views.setRemoteAdapter(R.id.menuItemList, buildCollectionItems(context, model, items));
+        } else {
+            views.setRemoteAdapter(R.id.menuItemList, getListServiceIntent(context, layoutId, snapshot));
+        }
+    }
+
+    private static RemoteViews.RemoteCollectionItems buildCollectionItems(Context context, WidgetRenderModel model,
+                                                                          List<String> items) {
+        RemoteViews.RemoteCollectionItems.Builder builder = new RemoteViews.RemoteCollectionItems.Builder()
+            .setHasStableIds(true)
+            .setViewTypeCount(1);
+        for (int i = 0; i < items.size(); i++) {
+            builder.addItem(model.getItemId(i), buildItemViews(context, model, i, items.get(i)));
         }
+        WidgetMetrics.countRemoteViews(items.size());
+        return builder.build();
+    }
+
+    /**
+     * Build the row for one menu item, with its icon when the item has one.
+     * Icon bitmaps come from {@link MenuIconCache}, so rows of the same category
+     * share one bitmap instance.
+     */
+    static RemoteViews buildItemViews(Context context, WidgetRenderModel model, int position, String item) {
+        RemoteViews itemViews = new RemoteViews(context.getPackageName(), R.layout.meal_widget_menu_item);
+        itemViews.setTextViewText(R.id.menuItemText, item);
+        MenuItemClassifier.Category category = model.getItemCategory(position);
+        Bitmap icon = category != null ? MenuIconCache.get(context, category) : null;
+        if (icon != null) {
+            itemViews.setImageViewBitmap(R.id.menuItemIcon, icon);
+            itemViews.setViewVisibility(R.id.menuItemIcon, View.VISIBLE);
+        }
+        return itemViews;
+    }
+
+    private static Intent getListServiceIntent(Context context, int layoutId, WidgetSnapshot snapshot) {
+        Intent intent = new Intent(context, MealWidgetService.class);
+        intent.putExtra(EXTRA_LAYOUT_ID, layoutId);
+        intent.putExtra(WidgetLaunchOptions.EXTRA_CITY_ID, snapshot.cityId);
+        intent.putExtra(WidgetLaunchOptions.EXTRA_MEAL_DATE, snapshot.mealDate);
+        intent.putExtra(WidgetLaunchOptions.EXTRA_MEAL_TYPE, snapshot.mealType);
+        // Make the intent unique per meal slot and layout, so widgets showing the same list share a factory
+        intent.setData(Uri.parse(intent.toUri(Intent.URI_INTENT_SCHEME)));
+        return intent;
     }
 
-    private static void setupMediumWidgetList(Context context, RemoteViews views, JSONArray items) throws JSONException {
+    private static void setupMediumWidgetList(Context context, RemoteViews views, WidgetSnapshot snapshot,
+                                              WidgetRenderModel model) {
         // Set up list view with a limited number of items (3 max)
-        int itemCount = Math.min(items.length(), 3);
-        boolean hasMore = items.length() > 3;
+        boolean hasMore = model.mediumMoreText != null;
         
-        if (items.length() > 0) {
-            // Set up the RemoteViews Service intent for the ListView
-            Intent intent = new Intent(context, MealWidgetService.class);
-            intent.putExtra("appWidgetId", 0); // We're not tracking individual widgets for now
-            views.setRemoteAdapter(R.id.menuItemList, intent);
+        if (model.mediumItems.size() > 0) {
+            // Only the items the medium layout shows are adapted
+            setListAdapter(context, views, R.layout.meal_widget_medium, snapshot, model, model.mediumItems);
             
             // Set empty view
             views.setEmptyView(R.id.menuItemList, R.id.moreItemsText);
@@ -184,19 +428,14 @@ public class MealWidgetProvider extends AppWidgetProvider {
         views.setViewVisibility(R.id.moreItemsText, hasMore ? View.VISIBLE : View.GONE);
         
         if (hasMore) {
-            views.setTextViewText(
-                R.id.moreItemsText, 
-                context.getString(R.string.widget_more_items, items.length() - 3)
-            );
+            views.setTextViewText(R.id.moreItemsText, model.mediumMoreText);
         }
     }
 
-    private static void setupLargeWidgetList(Context context, RemoteViews views, JSONArray items) throws JSONException {
-        if (items.length() > 0) {
-            // Set up the RemoteViews Service intent for the ListView
-            Intent intent = new Intent(context, MealWidgetService.class);
-            intent.putExtra("appWidgetId", 0); // We're not tracking individual widgets for now
-            views.setRemoteAdapter(R.id.menuItemList, intent);
+    private static void setupLargeWidgetList(Context context, RemoteViews views, WidgetSnapshot snapshot,
+                                             WidgetRenderModel model) {
+        if (model.largeItems.size() > 0) {
+            setListAdapter(context, views, R.layout.meal_widget_large, snapshot, model, model.largeItems);
             
             // Set empty view
             views.setEmptyView(R.id.menuItemList, R.id.noDataText);
@@ -210,19 +449,4 @@ public class MealWidgetProvider extends AppWidgetProvider {
             views.setViewVisibility(R.id.noDataText, View.VISIBLE);
         }
     }
-
-    private static String formatDate(String dateStr) {
-        try {
-            // Parse from ISO format
-            SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            Date date = inputFormat.parse(dateStr);
-            
-            // Format for display
-            SimpleDateFormat outputFormat = new SimpleDateFormat("dd MMMM yyyy", new Locale("tr"));
-            return outputFormat.format(date);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return dateStr;
-        }
-    }
-} 
\ No newline at end of file
+}
@@ -2,21 +2,17 @@ package com.kykyemek;
 
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.widget.RemoteViews;
 import android.widget.RemoteViewsService;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.util.ArrayList;
-import java.util.List;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 /**
  * Service to provide a factory for RemoteViews objects used in widgets.
- * This handles creating the list items in medium and large widget layouts.
+ * This handles creating the list items in medium and large widget layouts
+ * below API 31; newer versions receive the items inline with the widget update.
  */
 public class MealWidgetService extends RemoteViewsService {
     private static final String TAG = "MealWidgetService";
@@ -26,21 +22,63 @@ public class MealWidgetService extends RemoteViewsService {
         return new MealRemoteViewsFactory(this.getApplicationContext(), intent);
     }
 
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        // adb shell dumpsys activity service com.kykyemek/.MealWidgetService [eager on|off]
+        if (BuildConfig.DEBUG && args != null && args.length > 1 && "eager".equals(args[0])) {
+            // Takes effect on the next process start; kill the app to measure a widget-only start
+            boolean forced = "on".equals(args[1]);
+            StartupTimings.setEagerInitForced(this, forced);
+            writer.println("Eager React Native init " + (forced ? "forced" : "off") + " from the next process start");
+            return;
+        }
+        writer.println("Widget metrics:");
+        writer.println("  updateRequests=" + WidgetUpdateScheduler.getRequestCount()
+                + " coalesced=" + WidgetUpdateScheduler.getMergedCount()
+                + " renderPasses=" + WidgetUpdateScheduler.getRenderPassCount()
+                + " renderedWidgets=" + WidgetUpdateScheduler.getRenderedWidgetCount()
+                + " renderGroups=" + WidgetUpdateScheduler.getRenderGroupCount());
+        WidgetMetrics.dump(writer);
+        writer.println("  snapshotParseHits=" + WidgetSnapshotStore.getParseHits()
+                + " snapshotParseMisses=" + WidgetSnapshotStore.getParseMisses());
+        MealScheduleCache schedules = MealScheduleStore.cache(this);
+        writer.println("  scheduleFilesOpened=" + schedules.getFilesOpened()
+                + " scheduleSlotHits=" + schedules.getSlotHits()
+                + " scheduleSlotDecodes=" + schedules.getSlotDecodes());
+        writer.println("  iconCacheHits=" + MenuIconCache.getHitCount()
+                + " iconCacheMisses=" + MenuIconCache.getMissCount());
+        StartupTimings.dump(this, writer);
+    }
+
     /**
      * Factory for widget list items.
      */
-    class MealRemoteViewsFactory implements RemoteViewsService.RemoteViewsFactory {
+    static class MealRemoteViewsFactory implements RemoteViewsService.RemoteViewsFactory {
         private Context context;
-        private int appWidgetId;
-        private List<String> menuItems = new ArrayList<>();
-        private static final String PREFS_NAME = "com.kykyemek.MealWidget";
-        private static final String WIDGET_DATA_KEY = "kyk_yemek_widget_data";
-        private static final String WIDGET_ITEMS_KEY = "items";
+        // City and meal slot the list shows; every widget rendering the same slot shares the factory
+        private String cityId;
+        private String mealDate;
+        private String mealType;
+        private final MealListItems<RemoteViews> items;
 
         public MealRemoteViewsFactory(Context context, Intent intent) {
             this.context = context;
-            this.appWidgetId = intent.getIntExtra(
-                    "appWidgetId", 0);
+            this.cityId = intent.getStringExtra(WidgetLaunchOptions.EXTRA_CITY_ID);
+            this.mealDate = intent.getStringExtra(WidgetLaunchOptions.EXTRA_MEAL_DATE);
+            this.mealType = intent.getStringExtra(WidgetLaunchOptions.EXTRA_MEAL_TYPE);
+            int layoutId = intent.getIntExtra(MealWidgetProvider.EXTRA_LAYOUT_ID, R.layout.meal_widget_large);
+            this.items = new MealListItems<>(layoutId == R.layout.meal_widget_medium,
+                    new MealListItems.Views<RemoteViews>() {
+                        @Override
+                        public WidgetRenderModel modelOf(WidgetSnapshot snapshot) {
+                            return MealWidgetProvider.renderModelOf(context, snapshot);
+                        }
+
+                        @Override
+                        public RemoteViews build(WidgetRenderModel model, int position, String item) {
+                            return MealWidgetProvider.buildItemViews(context, model, position, item);
+                        }
+                    });
         }
 
         @Override
@@ -52,34 +90,23 @@ public class MealWidgetService extends RemoteViewsService {
         @Override
         public void onDataSetChanged() {
             // Refresh data when widget is updated
+            WidgetMetrics.countFactoryReload();
             loadMenuItems();
         }
 
         @Override
         public void onDestroy() {
-            menuItems.clear();
+            items.clear();
         }
 
         @Override
         public int getCount() {
-            return menuItems.size();
+            return items.getCount();
         }
 
         @Override
         public RemoteViews getViewAt(int position) {
-            if (position < 0 || position >= menuItems.size()) {
-                return null;
-            }
-
-            // Create a view for the menu item
-            RemoteViews rv = new RemoteViews(context.getPackageName(), 
-                    R.layout.meal_widget_menu_item);
-            
-            // Set the text for the menu item
-            rv.setTextViewText(R.id.menuItemText, menuItems.get(position));
-
-            // Return the remote views object
-            return rv;
+            return items.getViewAt(position);
         }
 
         @Override
@@ -95,7 +122,7 @@ public class MealWidgetService extends RemoteViewsService {
 
         @Override
         public long getItemId(int position) {
-            return position;
+            return items.getItemId(position);
         }
 
         @Override
@@ -104,32 +131,16 @@ public class MealWidgetService extends RemoteViewsService {
         }
 
         /**
-         * Load the menu items from SharedPreferences
+         * Load the menu items from the shared widget snapshot
          */
         private void loadMenuItems() {
-            menuItems.clear();
-            
-            try {
-                // Get widget data from SharedPreferences
-                SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-                String widgetDataJson = prefs.getString(WIDGET_DATA_KEY, null);
-                
-                if (widgetDataJson != null) {
-                    // Parse JSON data
-                    JSONObject data = new JSONObject(widgetDataJson);
-                    JSONArray items = data.getJSONArray(WIDGET_ITEMS_KEY);
-                    
-                    // Add items to the list
-                    for (int i = 0; i < items.length(); i++) {
-                        menuItems.add(items.getString(i));
-                    }
-                    
-                    Log.d(TAG, "Loaded " + menuItems.size() + " menu items");
-                } else {
-                    Log.d(TAG, "No widget data found in SharedPreferences");
-                }
-            } catch (JSONException e) {
-                Log.e(TAG, "Error parsing widget data: " + e.getMessage());
+            WidgetSnapshot snapshot = WidgetSnapshotStore.forSlot(context, cityId, mealDate, mealType);
+            if (!items.load(snapshot)) {
+                Log.d(TAG, "Menu items unchanged, skipping reload");
+            } else if (snapshot != null) {
+                Log.d(TAG, "Loaded " + items.getCount() + " menu items");
+            } else {
+                Log.d(TAG, "No widget data found in the schedule or snapshot store");
             }
         }
     }
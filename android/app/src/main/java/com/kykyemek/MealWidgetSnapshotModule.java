@@ -0,0 +1,60 @@
+package com.kykyemek;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.module.annotations.ReactModule;
+
+/**
+ * TurboModule with synchronous reads of the native widget snapshot, typed by the
+ * codegen spec in app/widgets/specs/NativeMealWidgetSnapshot.ts. Calls go through
+ * JSI and return on the JS thread, so JS can check whether the data the widgets
+ * show is current without a promise round-trip. The reads hit the snapshot stores'
+ * in-memory caches, so they are cheap enough to block on.
+ * Only registered in new architecture builds; {@link MealWidgetModule} offers the
+ * same reads as promises for the old architecture.
+ */
+@ReactModule(name = NativeMealWidgetSnapshotSpec.NAME)
+public class MealWidgetSnapshotModule extends NativeMealWidgetSnapshotSpec {
+    public MealWidgetSnapshotModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    /**
+     * Get the snapshot the city's widgets show right now
+     * @param cityId City key, or null for data written without a city
+     * @return Snapshot fields, or null if there is no valid data
+     */
+    @Override
+    @Nullable
+    public WritableMap getWidgetSnapshot(@Nullable String cityId) {
+        WidgetSnapshot snapshot = WidgetSnapshotStore.currentForCity(getReactApplicationContext(), cityId);
+        return snapshot != null ? Arguments.fromBundle(WidgetLaunchOptions.toBundle(snapshot)) : null;
+    }
+
+    /**
+     * Get the version of the data the city's widgets show right now. This is the
+     * schedule version when a week-ahead schedule covers the current meal slot,
+     * otherwise the single-meal version, so it can't be compared with either one alone.
+     * @param cityId City key, or null for data written without a city
+     * @return Version, or 0 if there is no valid data
+     */
+    @Override
+    public double getSnapshotVersion(@Nullable String cityId) {
+        WidgetSnapshot snapshot = WidgetSnapshotStore.currentForCity(getReactApplicationContext(), cityId);
+        return snapshot != null ? snapshot.version : 0;
+    }
+
+    /**
+     * Get the version of the city's week-ahead schedule, the version
+     * publishWidgetData resolved with when the schedule was published
+     * @param cityId City key
+     * @return Schedule version, or 0 if no schedule is stored for the city
+     */
+    @Override
+    public double getScheduleVersion(@Nullable String cityId) {
+        return MealScheduleStore.getVersion(getReactApplicationContext(), cityId);
+    }
+}
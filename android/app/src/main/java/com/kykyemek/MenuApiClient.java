@@ -0,0 +1,323 @@
+package com.kykyemek;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal native client for the menu REST endpoint, used to refresh widgets
+ * without starting React Native. Mirrors the item parsing done by
+ * mealService.getMealsByDateRange on the JS side.
+ * The base URL is injected so the client can be pointed at a local HTTP stand-in.
+ * With a {@link MenuResponseCache}, fresh responses are served from disk. Stale ones
+ * are served right away too, while a background request revalidates them with
+ * If-None-Match/If-Modified-Since.
+ */
+public class MenuApiClient {
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int READ_TIMEOUT_MS = 15000;
+    // Menus change at most daily, so a cached response is trusted without asking for a while
+    private static final long FRESH_MS = 6 * 60 * 60 * 1000L;
+    // A stale response this old is still shown while it is revalidated; older ones wait for the network
+    private static final long MAX_STALE_MS = 7 * 24 * 60 * 60 * 1000L;
+    private static final String MENUS_PATH = "/rest/v1/city_menus";
+    private static final String MENUS_SELECT = "meal_date,meal_type,menu_items_text,cities!inner(id,city_name)";
+    private static final String CITIES_PATH = "/rest/v1/cities";
+
+    // Same calorie suffix the JS side strips from item names, e.g. "Pilav 350 kcal"
+    private static final Pattern CALORIE_SUFFIX =
+            Pattern.compile("\\s*\\d+(?:-\\d+)?\\s*(?:kalori|kcal).*", Pattern.CASE_INSENSITIVE);
+
+    private static final ExecutorService sRevalidator = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "menu-revalidate");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final String baseUrl;
+    private final String apiKey;
+    private final MenuResponseCache cache;
+
+    public MenuApiClient(String baseUrl, String apiKey) {
+        this(baseUrl, apiKey, null);
+    }
+
+    public MenuApiClient(String baseUrl, String apiKey, MenuResponseCache cache) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.apiKey = apiKey;
+        this.cache = cache;
+    }
+
+    private static final class Response {
+        final String body;
+        final String etag;
+        final String lastModified;
+        final boolean notModified;
+
+        Response(String body, String etag, String lastModified, boolean notModified) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.notModified = notModified;
+        }
+    }
+
+    /**
+     * A city that a widget can be set to show
+     */
+    public static final class Location {
+        public final String id;
+        public final String name;
+
+        public Location(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        // Spinner adapters display toString()
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Fetch every city, ordered by name
+     * @throws IOException If the request fails or returns a non-2xx status
+     * @throws JSONException If the response is not the expected JSON
+     */
+    public List<Location> fetchCities() throws IOException, JSONException {
+        String url = baseUrl + CITIES_PATH + "?select=id,city_name&order=city_name";
+        return toLocations(get(url, null).body, "city_name");
+    }
+
+    /**
+     * A fetched schedule and whether it differs from the last response the cache held
+     */
+    public static final class ScheduleResult {
+        // Schedule JSON understood by MealSchedule, or null if the city has no menus in the range
+        public final String scheduleData;
+        // False for cache hits, stale responses, 304 revalidations and identical bodies
+        public final boolean changed;
+        // Background request checking a stale response, or null if nothing is pending
+        public final Future<ScheduleResult> revalidation;
+
+        ScheduleResult(String scheduleData, boolean changed, Future<ScheduleResult> revalidation) {
+            this.scheduleData = scheduleData;
+            this.changed = changed;
+            this.revalidation = revalidation;
+        }
+    }
+
+    /**
+     * Fetch a city's menus for a date range as schedule JSON understood by {@link MealSchedule}.
+     * A stale cached response is returned without waiting for the network; its
+     * revalidation runs in the background and is returned in {@link ScheduleResult#revalidation}.
+     * @param cityId City to fetch
+     * @param startDate First date, yyyy-MM-dd
+     * @param endDate Last date, yyyy-MM-dd
+     * @return The schedule, with changed set when the response body is new
+     * @throws IOException If the request fails or returns a non-2xx status
+     * @throws JSONException If the response is not the expected JSON
+     */
+    public ScheduleResult fetchSchedule(String cityId, String startDate, String endDate) throws IOException, JSONException {
+        String url = baseUrl + MENUS_PATH
+                + "?select=" + encode(MENUS_SELECT)
+                + "&city_id=eq." + encode(cityId)
+                + "&meal_date=gte." + encode(startDate)
+                + "&meal_date=lte." + encode(endDate)
+                + "&order=meal_date";
+        if (cache == null) {
+            return new ScheduleResult(toScheduleJson(cityId, get(url, null).body), true, null);
+        }
+
+        String key = MenuResponseCache.keyFor(cityId, startDate, endDate);
+        MenuResponseCache.Entry cached = cache.get(key);
+        String cachedSchedule = null;
+        if (cached != null) {
+            try {
+                cachedSchedule = toScheduleJson(cityId, cached.body);
+            } catch (JSONException e) {
+                // A damaged body would fail every run until it expired; fetch the menus in full instead
+                cache.remove(key);
+                return revalidate(url, key, cityId, null);
+            }
+        }
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.isFresherThan(FRESH_MS, now)) {
+            MenuResponseCache.recordHit();
+            return new ScheduleResult(cachedSchedule, false, null);
+        }
+        if (cached != null && cached.isFresherThan(MAX_STALE_MS, now)) {
+            MenuResponseCache.recordStaleServed();
+            Future<ScheduleResult> revalidation = sRevalidator.submit(() -> revalidate(url, key, cityId, cached));
+            return new ScheduleResult(cachedSchedule, false, revalidation);
+        }
+        return revalidate(url, key, cityId, cached);
+    }
+
+    // Conditional request for a cached response; an unconditional one if nothing is cached
+    private ScheduleResult revalidate(String url, String key, String cityId, MenuResponseCache.Entry cached)
+            throws IOException, JSONException {
+        Response response = get(url, cached);
+        long now = System.currentTimeMillis();
+        String body;
+        boolean changed;
+        if (response.notModified && cached != null) {
+            MenuResponseCache.recordRevalidation(cached.getSize());
+            body = cached.body;
+            changed = false;
+            cache.put(key, new MenuResponseCache.Entry(body,
+                    response.etag != null ? response.etag : cached.etag,
+                    response.lastModified != null ? response.lastModified : cached.lastModified,
+                    now));
+        } else {
+            MenuResponseCache.recordMiss();
+            body = response.body;
+            // Servers without validators resend the same menus in full
+            changed = cached == null || !body.equals(cached.body);
+            cache.put(key, new MenuResponseCache.Entry(body, response.etag, response.lastModified, now));
+        }
+        return new ScheduleResult(toScheduleJson(cityId, body), changed, null);
+    }
+
+    private Response get(String url, MenuResponseCache.Entry cached) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setRequestProperty("apikey", apiKey);
+            connection.setRequestProperty("Authorization", "Bearer " + apiKey);
+            connection.setRequestProperty("Accept", "application/json");
+            if (cached != null && cached.etag != null) {
+                connection.setRequestProperty("If-None-Match", cached.etag);
+            }
+            if (cached != null && cached.lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+            }
+
+            int status = connection.getResponseCode();
+            String etag = connection.getHeaderField("ETag");
+            String lastModified = connection.getHeaderField("Last-Modified");
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return new Response(null, etag, lastModified, true);
+            }
+            if (status < 200 || status >= 300) {
+                throw new IOException("Menu request failed with HTTP " + status);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return new Response(readFully(in), etag, lastModified, false);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Convert the city_menus response rows into the widget schedule format
+     */
+    static String toScheduleJson(String cityId, String responseBody) throws JSONException {
+        JSONArray rows = new JSONArray(responseBody);
+        if (rows.length() == 0) {
+            return null;
+        }
+        Map<String, JSONObject> days = new LinkedHashMap<>();
+        String cityName = null;
+
+        for (int i = 0; i < rows.length(); i++) {
+            JSONObject row = rows.getJSONObject(i);
+            String date = row.getString("meal_date");
+            JSONObject day = days.get(date);
+            if (day == null) {
+                day = new JSONObject();
+                day.put("date", date);
+                days.put(date, day);
+            }
+
+            JSONArray items = new JSONArray();
+            for (String item : parseItems(row.optString("menu_items_text", ""))) {
+                items.put(item);
+            }
+            String mealType = row.getString("meal_type");
+            day.put(MealClock.BREAKFAST.equals(mealType) ? "breakfast" : "dinner", items);
+
+            JSONObject city = row.optJSONObject("cities");
+            if (cityName == null && city != null) {
+                cityName = city.optString("city_name", null);
+            }
+        }
+
+        JSONArray dayArray = new JSONArray();
+        for (JSONObject day : days.values()) {
+            dayArray.put(day);
+        }
+        JSONObject schedule = new JSONObject();
+        schedule.put("cityId", cityId);
+        schedule.put("cityName", cityName != null ? cityName : JSONObject.NULL);
+        schedule.put("days", dayArray);
+        return schedule.toString();
+    }
+
+    static List<Location> toLocations(String responseBody, String nameKey) throws JSONException {
+        JSONArray rows = new JSONArray(responseBody);
+        List<Location> locations = new ArrayList<>(rows.length());
+        for (int i = 0; i < rows.length(); i++) {
+            JSONObject row = rows.getJSONObject(i);
+            // Ids are stored as strings, matching what the app writes for cityId
+            locations.add(new Location(String.valueOf(row.getLong("id")), row.getString(nameKey)));
+        }
+        return locations;
+    }
+
+    /**
+     * Split the semicolon separated menu text into display item names
+     */
+    static List<String> parseItems(String menuItemsText) {
+        List<String> items = new ArrayList<>();
+        for (String part : menuItemsText.split(";")) {
+            String item = CALORIE_SUFFIX.matcher(part.trim()).replaceAll("").trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            // Water and bread come with every meal, so the app hides them too
+            String lower = item.toLowerCase(Locale.ROOT);
+            if (lower.contains("500 ml su") || lower.contains("çeyrek ekmek")) {
+                continue;
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
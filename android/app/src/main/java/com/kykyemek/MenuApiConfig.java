@@ -0,0 +1,75 @@
+package com.kykyemek;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Menu API settings for the native client, read from the same place the JS
+ * client gets them: the "extra" block of app.json. expo-constants embeds the
+ * resolved app config in the APK as the app.config asset, which is what
+ * Constants.expoConfig returns in lib/supabase.ts.
+ */
+public final class MenuApiConfig {
+    private static final String TAG = "MenuApiConfig";
+    private static final String APP_CONFIG_ASSET = "app.config";
+    private static final String URL_KEY = "EXPO_PUBLIC_SUPABASE_URL";
+    private static final String ANON_KEY_KEY = "EXPO_PUBLIC_SUPABASE_ANON_KEY";
+
+    private static volatile MenuApiConfig sInstance;
+
+    public final String url;
+    public final String anonKey;
+
+    private MenuApiConfig(String url, String anonKey) {
+        this.url = url;
+        this.anonKey = anonKey;
+    }
+
+    /**
+     * Get the menu API settings, reading the app config on first use
+     * @param context Context used to open the app config asset
+     * @return The settings, or null if the app config doesn't have them
+     */
+    public static MenuApiConfig get(Context context) {
+        MenuApiConfig config = sInstance;
+        if (config == null) {
+            config = read(context);
+            sInstance = config;
+        }
+        return config;
+    }
+
+    private static MenuApiConfig read(Context context) {
+        try (InputStream in = context.getAssets().open(APP_CONFIG_ASSET)) {
+            JSONObject extra = new JSONObject(readFully(in)).optJSONObject("extra");
+            String url = extra != null ? extra.optString(URL_KEY, "") : "";
+            String anonKey = extra != null ? extra.optString(ANON_KEY_KEY, "") : "";
+            if (url.isEmpty() || anonKey.isEmpty()) {
+                Log.e(TAG, "Menu API settings missing from app config extra");
+                return null;
+            }
+            return new MenuApiConfig(url, anonKey);
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Error reading app config: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
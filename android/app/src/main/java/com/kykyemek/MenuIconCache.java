@@ -0,0 +1,95 @@
+package com.kykyemek;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+import android.util.LruCache;
+
+/**
+ * Rasterized menu item icons for the widget rows. Each category is drawn once per
+ * screen density and reused, so repeated updates share the same small bitmap
+ * instead of inflating and drawing the vector again.
+ */
+public final class MenuIconCache {
+    private static final String TAG = "MenuIconCache";
+
+    // Matches the menuItemIcon view in meal_widget_menu_item
+    private static final int ICON_SIZE_DP = 16;
+    // Room for every category at two densities even on xxxhdpi (64x64 ARGB is 16KB)
+    private static final int MAX_BYTES = 21 * 2 * 16 * 1024;
+
+    private static final LruCache<String, Bitmap> sCache = new LruCache<String, Bitmap>(MAX_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getAllocationByteCount();
+        }
+    };
+
+    private MenuIconCache() {
+    }
+
+    /**
+     * Get the icon bitmap for a category at the current screen density
+     * @param context Context used to resolve the drawable and display metrics
+     * @param category Category from {@link MenuItemClassifier}
+     * @return Icon bitmap, or null if it could not be drawn
+     */
+    public static Bitmap get(Context context, MenuItemClassifier.Category category) {
+        int densityDpi = context.getResources().getDisplayMetrics().densityDpi;
+        String key = category.name() + "|" + densityDpi;
+        Bitmap bitmap = sCache.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        Drawable drawable = context.getDrawable(getDrawableId(category));
+        if (drawable == null) {
+            Log.e(TAG, "Missing icon drawable for " + category);
+            return null;
+        }
+        int sizePx = Math.round(ICON_SIZE_DP * densityDpi / 160f);
+        bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, sizePx, sizePx);
+        drawable.draw(new Canvas(bitmap));
+        sCache.put(key, bitmap);
+        Log.d(TAG, "Rasterized " + key + " at " + sizePx + "px");
+        return bitmap;
+    }
+
+    public static int getHitCount() {
+        return sCache.hitCount();
+    }
+
+    public static int getMissCount() {
+        return sCache.missCount();
+    }
+
+    private static int getDrawableId(MenuItemClassifier.Category category) {
+        switch (category) {
+            case SOUP: return R.drawable.ic_menu_soup;
+            case EGG: return R.drawable.ic_menu_eggomelet;
+            case OLIVE: return R.drawable.ic_menu_olive;
+            case BAGEL: return R.drawable.ic_menu_bagel;
+            case SALAD: return R.drawable.ic_menu_salad;
+            case PASTRY: return R.drawable.ic_menu_pastry;
+            case JAM: return R.drawable.ic_menu_jam;
+            case HONEY: return R.drawable.ic_menu_honey;
+            case CAKE: return R.drawable.ic_menu_cake;
+            case FRUIT: return R.drawable.ic_menu_fruit;
+            case CHOCOLATE: return R.drawable.ic_menu_nutella;
+            case TEA: return R.drawable.ic_menu_tea;
+            case CHEESE: return R.drawable.ic_menu_cheese;
+            case MAIN_DISH: return R.drawable.ic_menu_main_dish;
+            case PASTA: return R.drawable.ic_menu_pasta;
+            case RICE: return R.drawable.ic_menu_rice;
+            case DESSERT: return R.drawable.ic_menu_cupcake;
+            case YOGURT: return R.drawable.ic_menu_yogurt;
+            case AYRAN: return R.drawable.ic_menu_ayran;
+            case TAKEAWAY: return R.drawable.ic_menu_takeaway;
+            case PIZZA:
+            default: return R.drawable.ic_menu_pizza_slice;
+        }
+    }
+}
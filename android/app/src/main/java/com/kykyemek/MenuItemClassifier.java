@@ -0,0 +1,225 @@
+package com.kykyemek;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Maps Turkish menu item names to icon categories with the same rules as
+ * MenuItemIcon.tsx. All keywords live in one Aho-Corasick automaton built once
+ * per process, so each item is classified in a single pass over its characters
+ * with Turkish case folding applied on the fly.
+ */
+public final class MenuItemClassifier {
+    /**
+     * Icon categories. Within each meal type, earlier categories win when an item
+     * matches several, mirroring the if/else order of the app's icon rules.
+     */
+    public enum Category {
+        SOUP, EGG, OLIVE, BAGEL, SALAD, PASTRY, JAM, HONEY, CAKE, FRUIT, CHOCOLATE, TEA, CHEESE,
+        MAIN_DISH, PASTA, RICE, DESSERT, YOGURT, AYRAN, TAKEAWAY, PIZZA
+    }
+
+    private static final Category[] CATEGORIES = Category.values();
+    // Dinner only treats "salata" as a salad, not "söğüş" or "piyaz", so it gets its own match bit
+    private static final int DINNER_SALAD_BIT = CATEGORIES.length;
+
+    private static final long BREAKFAST_MASK = maskOf(
+        Category.EGG, Category.OLIVE, Category.BAGEL, Category.SALAD, Category.PASTRY, Category.JAM,
+        Category.HONEY, Category.CAKE, Category.FRUIT, Category.CHOCOLATE, Category.TEA, Category.CHEESE);
+    private static final long DINNER_OTHER_MASK = maskOf(
+        Category.DESSERT, Category.YOGURT, Category.AYRAN, Category.TAKEAWAY, Category.PIZZA);
+
+    private static final Automaton AUTOMATON = new Automaton.Builder()
+        .add(Category.EGG, "omlet", "yumurta", "menemen")
+        .add(Category.OLIVE, "zeytin")
+        .add(Category.BAGEL, "simit", "açma", "poğaça")
+        .add(Category.SALAD, "söğüş", "salata", "piyaz")
+        .add(DINNER_SALAD_BIT, "salata")
+        .add(Category.PASTRY, "börek", "böreği")
+        .add(Category.JAM, "reçel", "pekmez")
+        .add(Category.HONEY, "bal")
+        .add(Category.CAKE, "kek", "pasta")
+        .add(Category.FRUIT, "elma", "mandalina", "muz", "meyve")
+        .add(Category.CHOCOLATE, "çikolata")
+        .add(Category.TEA, "çay", "kahve")
+        .add(Category.CHEESE, "peynir")
+        .add(Category.PASTA, "makarna", "erişte")
+        .add(Category.RICE, "pilav")
+        .add(Category.DESSERT, "muhallebi", "tatlı", "baklava", "güllaç", "revani", "trileçe", "kadayıf", "browni")
+        .add(Category.YOGURT, "yoğurt")
+        .add(Category.AYRAN, "ayran")
+        .add(Category.TAKEAWAY, "al götür")
+        .add(Category.PIZZA, "pizza")
+        .build();
+
+    private MenuItemClassifier() {
+    }
+
+    /**
+     * Pick the icon category for a menu item
+     * @param item Item name as shown in the menu
+     * @param mealType BREAKFAST or DINNER
+     * @param position Position of the item in the meal's list
+     * @return Category, or null if the item gets no icon
+     */
+    public static Category classify(String item, String mealType, int position) {
+        // The first item of every meal is soup
+        if (position == 0) {
+            return Category.SOUP;
+        }
+
+        long matches = AUTOMATON.match(item);
+        if (MealClock.BREAKFAST.equals(mealType)) {
+            return first(matches & BREAKFAST_MASK);
+        }
+
+        if ((matches & (1L << DINNER_SALAD_BIT)) != 0) {
+            return Category.SALAD;
+        }
+        // The second dinner item is the main dish, the third a side of pasta or rice
+        if (position == 1) {
+            return Category.MAIN_DISH;
+        }
+        if (position == 2) {
+            if (has(matches, Category.PASTA)) {
+                return Category.PASTA;
+            }
+            return has(matches, Category.RICE) ? Category.RICE : null;
+        }
+        return first(matches & DINNER_OTHER_MASK);
+    }
+
+    /**
+     * Turkish-aware lower case for a single character: dotted and dotless I fold
+     * to their own lower case forms instead of both becoming "i"
+     */
+    static char fold(char c) {
+        if (c == 'I') {
+            return 'ı';
+        }
+        if (c == 'İ') {
+            return 'i';
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static boolean has(long mask, Category category) {
+        return (mask & (1L << category.ordinal())) != 0;
+    }
+
+    private static Category first(long mask) {
+        return mask == 0 ? null : CATEGORIES[Long.numberOfTrailingZeros(mask)];
+    }
+
+    private static long maskOf(Category... categories) {
+        long mask = 0;
+        for (Category category : categories) {
+            mask |= 1L << category.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Aho-Corasick automaton over folded keywords. Each state's output is the
+     * bitmask of categories (and extra bits) whose keywords end there, including via failure links.
+     */
+    static final class Automaton {
+        private final List<Map<Character, Integer>> transitions;
+        private final int[] failure;
+        private final long[] outputs;
+
+        private Automaton(List<Map<Character, Integer>> transitions, int[] failure, long[] outputs) {
+            this.transitions = transitions;
+            this.failure = failure;
+            this.outputs = outputs;
+        }
+
+        /**
+         * Find every category with a keyword somewhere in the text
+         * @return Bitmask of category ordinals, plus any extra keyword bits
+         */
+        long match(CharSequence text) {
+            long matches = 0;
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = fold(text.charAt(i));
+                Integer next = transitions.get(state).get(c);
+                while (next == null && state != 0) {
+                    state = failure[state];
+                    next = transitions.get(state).get(c);
+                }
+                state = next == null ? 0 : next;
+                matches |= outputs[state];
+            }
+            return matches;
+        }
+
+        static final class Builder {
+            private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+            private final List<Long> outputs = new ArrayList<>();
+
+            Builder() {
+                newState();
+            }
+
+            Builder add(Category category, String... keywords) {
+                return add(category.ordinal(), keywords);
+            }
+
+            // Bits past the last category are for keywords that only some rules look at
+            Builder add(int bit, String... keywords) {
+                for (String keyword : keywords) {
+                    int state = 0;
+                    for (int i = 0; i < keyword.length(); i++) {
+                        char c = fold(keyword.charAt(i));
+                        Integer next = transitions.get(state).get(c);
+                        if (next == null) {
+                            next = newState();
+                            transitions.get(state).put(c, next);
+                        }
+                        state = next;
+                    }
+                    outputs.set(state, outputs.get(state) | (1L << bit));
+                }
+                return this;
+            }
+
+            Automaton build() {
+                int[] failure = new int[transitions.size()];
+                long[] output = new long[transitions.size()];
+                for (int i = 0; i < output.length; i++) {
+                    output[i] = outputs.get(i);
+                }
+
+                // Breadth-first, so a state's failure target is final before its children need it
+                Queue<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+                while (!queue.isEmpty()) {
+                    int state = queue.remove();
+                    for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                        int child = edge.getValue();
+                        int fallback = failure[state];
+                        Integer target = transitions.get(fallback).get(edge.getKey());
+                        while (target == null && fallback != 0) {
+                            fallback = failure[fallback];
+                            target = transitions.get(fallback).get(edge.getKey());
+                        }
+                        failure[child] = target == null || target == child ? 0 : target;
+                        output[child] |= output[failure[child]];
+                        queue.add(child);
+                    }
+                }
+                return new Automaton(transitions, failure, output);
+            }
+
+            private int newState() {
+                transitions.add(new HashMap<>());
+                outputs.add(0L);
+                return transitions.size() - 1;
+            }
+        }
+    }
+}
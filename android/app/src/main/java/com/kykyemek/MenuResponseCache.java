@@ -0,0 +1,321 @@
+package com.kykyemek;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded on-disk cache for menu API responses, keyed by city and date range.
+ * Each entry keeps the response body with its ETag and Last-Modified validators so
+ * {@link MenuApiClient} can revalidate with a conditional request instead of
+ * downloading the same menus again. Least recently used entries are evicted first,
+ * body and validators together.
+ */
+public class MenuResponseCache {
+    private static final String TAG = "MenuResponseCache";
+    private static final String BODY_SUFFIX = ".body";
+    private static final String META_SUFFIX = ".meta";
+
+    private static final String META_ETAG_KEY = "etag";
+    private static final String META_LAST_MODIFIED_KEY = "lastModified";
+    private static final String META_FETCHED_AT_KEY = "fetchedAt";
+
+    // Counters are shared by every cache instance so the job and the debug screen see the same numbers
+    private static final AtomicLong sHits = new AtomicLong();
+    private static final AtomicLong sMisses = new AtomicLong();
+    private static final AtomicLong sRevalidations = new AtomicLong();
+    private static final AtomicLong sStaleServed = new AtomicLong();
+    private static final AtomicLong sBytesSaved = new AtomicLong();
+
+    private final File directory;
+    private final long maxBytes;
+
+    /**
+     * A cached response and its validators
+     */
+    public static final class Entry {
+        public final String body;
+        public final String etag;
+        public final String lastModified;
+        public final long fetchedAt;
+
+        Entry(String body, String etag, String lastModified, long fetchedAt) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.fetchedAt = fetchedAt;
+        }
+
+        public boolean isFresherThan(long maxAgeMs, long nowMillis) {
+            return nowMillis - fetchedAt < maxAgeMs;
+        }
+
+        public int getSize() {
+            return body.getBytes(StandardCharsets.UTF_8).length;
+        }
+    }
+
+    public MenuResponseCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Build the cache key for a city's menus over a date range
+     */
+    public static String keyFor(String cityId, String startDate, String endDate) {
+        return cityId + "|" + startDate + "|" + endDate;
+    }
+
+    /**
+     * Get a cached response, marking it as recently used
+     * @param key Key from {@link #keyFor}
+     * @return The entry, or null if nothing usable is cached
+     */
+    public synchronized Entry get(String key) {
+        String name = fileName(key);
+        File bodyFile = new File(directory, name + BODY_SUFFIX);
+        File metaFile = new File(directory, name + META_SUFFIX);
+        if (!bodyFile.exists() || !metaFile.exists()) {
+            // Half an entry is a miss; drop the other half so it isn't used for a conditional request
+            bodyFile.delete();
+            metaFile.delete();
+            return null;
+        }
+
+        try {
+            JSONObject meta = new JSONObject(readFile(metaFile));
+            Entry entry = new Entry(
+                readFile(bodyFile),
+                meta.isNull(META_ETAG_KEY) ? null : meta.optString(META_ETAG_KEY, null),
+                meta.isNull(META_LAST_MODIFIED_KEY) ? null : meta.optString(META_LAST_MODIFIED_KEY, null),
+                meta.getLong(META_FETCHED_AT_KEY));
+            long now = System.currentTimeMillis();
+            bodyFile.setLastModified(now);
+            metaFile.setLastModified(now);
+            return entry;
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Dropping unreadable cache entry: " + e.getMessage());
+            bodyFile.delete();
+            metaFile.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Store a response, evicting least recently used entries if the cache grows too large
+     * @param key Key from {@link #keyFor}
+     * @param entry Response and validators to store
+     */
+    public synchronized void put(String key, Entry entry) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e(TAG, "Could not create cache directory " + directory);
+            return;
+        }
+
+        String name = fileName(key);
+        try {
+            JSONObject meta = new JSONObject();
+            meta.put(META_ETAG_KEY, entry.etag != null ? entry.etag : JSONObject.NULL);
+            meta.put(META_LAST_MODIFIED_KEY, entry.lastModified != null ? entry.lastModified : JSONObject.NULL);
+            meta.put(META_FETCHED_AT_KEY, entry.fetchedAt);
+            // Body first: an entry only counts once its metadata exists.
+            // Each file is replaced whole, so a crash never leaves a truncated body behind.
+            WidgetSnapshotFile.replace(new File(directory, name + BODY_SUFFIX),
+                    entry.body.getBytes(StandardCharsets.UTF_8));
+            WidgetSnapshotFile.replace(new File(directory, name + META_SUFFIX),
+                    meta.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Error writing cache entry: " + e.getMessage());
+            return;
+        }
+        trimToSize();
+    }
+
+    /**
+     * Drop a cached response, e.g. one whose body can't be parsed
+     * @param key Key from {@link #keyFor}
+     */
+    public synchronized void remove(String key) {
+        String name = fileName(key);
+        new File(directory, name + BODY_SUFFIX).delete();
+        new File(directory, name + META_SUFFIX).delete();
+    }
+
+    // Body and meta files are evicted and counted together, so an entry never loses half of itself
+    private void trimToSize() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Map<String, CachedFiles> entries = new HashMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            boolean body = name.endsWith(BODY_SUFFIX);
+            if (!body && !name.endsWith(META_SUFFIX)) {
+                continue;
+            }
+            String entryName = name.substring(0, name.length() - (body ? BODY_SUFFIX : META_SUFFIX).length());
+            CachedFiles entry = entries.get(entryName);
+            if (entry == null) {
+                entry = new CachedFiles(entryName);
+                entries.put(entryName, entry);
+            }
+            entry.add(file, body);
+        }
+
+        long total = 0;
+        List<CachedFiles> complete = new ArrayList<>(entries.size());
+        for (CachedFiles entry : entries.values()) {
+            if (entry.body == null || entry.meta == null) {
+                // Left behind by an interrupted write or an older eviction; never readable
+                entry.delete();
+                continue;
+            }
+            total += entry.size;
+            complete.add(entry);
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        Collections.sort(complete, Comparator.comparingLong(entry -> entry.lastUsed));
+        for (CachedFiles entry : complete) {
+            if (total <= maxBytes) {
+                break;
+            }
+            total -= entry.size;
+            entry.delete();
+            Log.d(TAG, "Evicted " + entry.name);
+        }
+    }
+
+    private static final class CachedFiles {
+        final String name;
+        File body;
+        File meta;
+        long size;
+        long lastUsed;
+
+        CachedFiles(String name) {
+            this.name = name;
+        }
+
+        void add(File file, boolean isBody) {
+            if (isBody) {
+                body = file;
+            } else {
+                meta = file;
+            }
+            size += file.length();
+            lastUsed = Math.max(lastUsed, file.lastModified());
+        }
+
+        void delete() {
+            if (body != null) {
+                body.delete();
+            }
+            if (meta != null) {
+                meta.delete();
+            }
+        }
+    }
+
+    static void recordHit() {
+        sHits.incrementAndGet();
+    }
+
+    static void recordMiss() {
+        sMisses.incrementAndGet();
+    }
+
+    static void recordRevalidation(int bytesSaved) {
+        sRevalidations.incrementAndGet();
+        sBytesSaved.addAndGet(bytesSaved);
+    }
+
+    static void recordStaleServed() {
+        sStaleServed.incrementAndGet();
+    }
+
+    /**
+     * Requests answered without downloading the body (fresh hits and 304 revalidations)
+     */
+    public static long getHitCount() {
+        return sHits.get() + sRevalidations.get();
+    }
+
+    /**
+     * Requests that downloaded a full response body
+     */
+    public static long getMissCount() {
+        return sMisses.get();
+    }
+
+    /**
+     * Requests answered with a 304 Not Modified
+     */
+    public static long getRevalidationCount() {
+        return sRevalidations.get();
+    }
+
+    /**
+     * Requests answered with a stale cached body while it was revalidated in the background
+     */
+    public static long getStaleServedCount() {
+        return sStaleServed.get();
+    }
+
+    /**
+     * Response body bytes not downloaded thanks to 304 revalidations
+     */
+    public static long getBytesSaved() {
+        return sBytesSaved.get();
+    }
+
+    // Hash the key so it's always a safe file name
+    private static String fileName(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    private static String readFile(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read == -1) {
+                    break;
+                }
+                offset += read;
+            }
+            return new String(data, 0, offset, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.kykyemek;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start timings for the app process. Processes started only for the widget
+ * (provider, list service, boot receiver, fetch job) never initialize React Native,
+ * so their first widget push is recorded as a deferred widget-only start.
+ * Debug builds can force MainApplication back to the old eager init, and widget-only
+ * starts in that mode are recorded separately, so both paths are measured rather
+ * than estimated. Results are persisted so they can be compared across process starts.
+ */
+public final class StartupTimings {
+    private static final String TAG = "StartupTimings";
+    private static final String PREFS_NAME = "startup_timings";
+    private static final String DEFERRED_PREFIX = "widget_only_";
+    private static final String EAGER_PREFIX = "widget_only_eager_";
+    private static final String APP_CREATED_SUFFIX = "app_created_ms";
+    private static final String FIRST_PUSH_SUFFIX = "first_push_ms";
+    private static final String START_COUNT_SUFFIX = "start_count";
+    private static final String REACT_INIT_KEY = "react_init_ms";
+    private static final String FORCE_EAGER_INIT_KEY = "force_eager_init";
+
+    // Process start to the end of Application.onCreate, or -1 before it ran
+    private static volatile long sAppCreatedMs = -1;
+    private static volatile long sReactInitMs = -1;
+    // Whether React Native was initialized in Application.onCreate, the old eager path
+    private static volatile boolean sEagerStart;
+    private static volatile boolean sActivityCreated;
+    private static boolean sFirstPushRecorded;
+
+    private StartupTimings() {
+    }
+
+    /**
+     * Note that Application.onCreate finished
+     * @param eager Whether React Native was initialized in onCreate
+     */
+    static void markApplicationCreated(boolean eager) {
+        sEagerStart = eager;
+        sAppCreatedMs = sinceProcessStart();
+        Log.d(TAG, "Application created " + sAppCreatedMs + "ms after process start"
+                + (eager ? " with eager React Native init" : ""));
+    }
+
+    /**
+     * Note that an activity was created, so the process isn't a widget-only start
+     */
+    static void markActivityCreated() {
+        sActivityCreated = true;
+    }
+
+    /**
+     * Note that React Native and its native libraries were initialized
+     * @param context Context used to persist the timing
+     * @param nanos Time spent initializing
+     */
+    static void markReactInitialized(Context context, long nanos) {
+        sReactInitMs = TimeUnit.NANOSECONDS.toMillis(nanos);
+        getPrefs(context).edit().putLong(REACT_INIT_KEY, sReactInitMs).apply();
+        Log.d(TAG, "React Native initialized in " + sReactInitMs + "ms");
+    }
+
+    /**
+     * Note that a widget was pushed. Only the first push of a process counts, and it
+     * is persisted as a widget-only start if no activity or bridge started React Native
+     * by then, under the eager or deferred path the process started with.
+     * @param context Context used to persist the timing
+     */
+    static void markWidgetPushed(Context context) {
+        long firstPushMs;
+        synchronized (StartupTimings.class) {
+            if (sFirstPushRecorded) {
+                return;
+            }
+            sFirstPushRecorded = true;
+            firstPushMs = sinceProcessStart();
+        }
+        if (sAppCreatedMs < 0 || sActivityCreated || (!sEagerStart && sReactInitMs >= 0)) {
+            // Not a cold start we saw, or the app UI started the process
+            return;
+        }
+        String prefix = prefix(sEagerStart);
+        SharedPreferences prefs = getPrefs(context);
+        prefs.edit()
+                .putLong(prefix + APP_CREATED_SUFFIX, sAppCreatedMs)
+                .putLong(prefix + FIRST_PUSH_SUFFIX, firstPushMs)
+                .putLong(prefix + START_COUNT_SUFFIX, prefs.getLong(prefix + START_COUNT_SUFFIX, 0) + 1)
+                .apply();
+        Log.d(TAG, (sEagerStart ? "Eager" : "Deferred") + " widget-only start pushed "
+                + firstPushMs + "ms after process start");
+    }
+
+    /**
+     * Whether React Native was initialized in this process
+     */
+    public static boolean isReactInitialized() {
+        return sReactInitMs >= 0;
+    }
+
+    public static long getAppCreatedMs() {
+        return sAppCreatedMs;
+    }
+
+    /**
+     * Whether the next process start should initialize React Native eagerly, for measuring
+     */
+    public static boolean isEagerInitForced(Context context) {
+        return getPrefs(context).getBoolean(FORCE_EAGER_INIT_KEY, false);
+    }
+
+    /**
+     * Make later process starts initialize React Native in Application.onCreate, as
+     * before it was deferred. Only honored by debug builds.
+     */
+    public static void setEagerInitForced(Context context, boolean forced) {
+        // Written synchronously so the flag is in place before the process is killed
+        getPrefs(context).edit().putBoolean(FORCE_EAGER_INIT_KEY, forced).commit();
+    }
+
+    /**
+     * Application.onCreate end of the last widget-only start, in ms after process start, or -1
+     * @param eager Whether to read starts with eager or deferred React Native init
+     */
+    public static long getWidgetOnlyAppCreatedMs(Context context, boolean eager) {
+        return getPrefs(context).getLong(prefix(eager) + APP_CREATED_SUFFIX, -1);
+    }
+
+    /**
+     * First widget push of the last widget-only start, in ms after process start, or -1
+     * @param eager Whether to read starts with eager or deferred React Native init
+     */
+    public static long getWidgetOnlyFirstPushMs(Context context, boolean eager) {
+        return getPrefs(context).getLong(prefix(eager) + FIRST_PUSH_SUFFIX, -1);
+    }
+
+    /**
+     * Number of widget-only starts recorded
+     * @param eager Whether to count starts with eager or deferred React Native init
+     */
+    public static long getWidgetOnlyStartCount(Context context, boolean eager) {
+        return getPrefs(context).getLong(prefix(eager) + START_COUNT_SUFFIX, 0);
+    }
+
+    /**
+     * Last measured React Native init time, or -1
+     */
+    public static long getLastReactInitMs(Context context) {
+        return getPrefs(context).getLong(REACT_INIT_KEY, -1);
+    }
+
+    /**
+     * Write a report of the last deferred and eager widget-only starts, used by dumpsys
+     */
+    public static void dump(Context context, PrintWriter writer) {
+        writer.println("Startup timings:");
+        writer.println("  thisProcess: appCreated=" + sAppCreatedMs + "ms eager=" + sEagerStart
+                + " reactInitialized=" + isReactInitialized());
+        writer.println("  eagerInitForced=" + isEagerInitForced(context)
+                + " lastReactInit=" + getLastReactInitMs(context) + "ms");
+        dumpStarts(context, writer, false);
+        dumpStarts(context, writer, true);
+    }
+
+    private static void dumpStarts(Context context, PrintWriter writer, boolean eager) {
+        writer.println("  widgetOnly " + (eager ? "eager" : "deferred") + ":"
+                + " starts=" + getWidgetOnlyStartCount(context, eager)
+                + " lastAppCreated=" + getWidgetOnlyAppCreatedMs(context, eager) + "ms"
+                + " lastFirstPush=" + getWidgetOnlyFirstPushMs(context, eager) + "ms");
+    }
+
+    private static String prefix(boolean eager) {
+        return eager ? EAGER_PREFIX : DEFERRED_PREFIX;
+    }
+
+    private static long sinceProcessStart() {
+        return SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return WidgetStorage.getPrefs(context, PREFS_NAME);
+    }
+}
@@ -0,0 +1,96 @@
+package com.kykyemek;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Which city each placed widget shows. Configured widgets keep their own city and
+ * the rest follow the city selected in the app. Publishing a city's data never
+ * changes which city that is; only the app's own selection does, through
+ * {@link #setDefaultCityId}. Plain Java, so the JVM tests check the same routing
+ * as WidgetConfigStore.
+ */
+final class WidgetCities {
+    /**
+     * Where the widgets and their settings are kept
+     */
+    interface Source {
+        int[] getAllWidgetIds();
+
+        WidgetConfig getConfig(int appWidgetId);
+
+        String getDefaultCityId();
+
+        void putDefaultCityId(String cityId);
+    }
+
+    private final Source source;
+
+    WidgetCities(Source source) {
+        this.source = source;
+    }
+
+    /**
+     * Get the city whose data a widget shows
+     * @return The configured city, the app's city, or null for the legacy unkeyed data
+     */
+    String resolveCityId(WidgetConfig config) {
+        return config.cityId != null ? config.cityId : source.getDefaultCityId();
+    }
+
+    /**
+     * Get the placed widgets that show the given city
+     * @param cityId City key, or null for widgets on the legacy unkeyed data
+     */
+    int[] getWidgetIdsForCity(String cityId) {
+        List<Integer> matching = new ArrayList<>();
+        for (int appWidgetId : source.getAllWidgetIds()) {
+            if (Objects.equals(cityId, resolveCityId(source.getConfig(appWidgetId)))) {
+                matching.add(appWidgetId);
+            }
+        }
+        return toArray(matching);
+    }
+
+    /**
+     * Get the distinct cities shown by the placed widgets
+     */
+    List<String> getWidgetCityIds() {
+        List<String> cityIds = new ArrayList<>();
+        for (int appWidgetId : source.getAllWidgetIds()) {
+            String cityId = resolveCityId(source.getConfig(appWidgetId));
+            if (cityId != null && !cityIds.contains(cityId)) {
+                cityIds.add(cityId);
+            }
+        }
+        return cityIds;
+    }
+
+    /**
+     * Remember the city selected in the app
+     * @return The widgets following the app, which now show another city; empty if it didn't change
+     */
+    int[] setDefaultCityId(String cityId) {
+        if (cityId == null || cityId.equals(source.getDefaultCityId())) {
+            return new int[0];
+        }
+        source.putDefaultCityId(cityId);
+
+        List<Integer> following = new ArrayList<>();
+        for (int appWidgetId : source.getAllWidgetIds()) {
+            if (source.getConfig(appWidgetId).cityId == null) {
+                following.add(appWidgetId);
+            }
+        }
+        return toArray(following);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,39 @@
+package com.kykyemek;
+
+/**
+ * Immutable per-widget settings chosen when the widget is placed.
+ * A null city means the widget follows the city selected in the app.
+ */
+public final class WidgetConfig {
+    public static final String MEAL_MODE_AUTO = "AUTO";
+
+    public final int appWidgetId;
+    public final String cityId;
+    // AUTO, or a fixed BREAKFAST / DINNER
+    public final String mealMode;
+
+    public WidgetConfig(int appWidgetId, String cityId, String mealMode) {
+        this.appWidgetId = appWidgetId;
+        this.cityId = cityId;
+        this.mealMode = mealMode != null ? mealMode : MEAL_MODE_AUTO;
+    }
+
+    /**
+     * Default settings for widgets that were never configured
+     */
+    public static WidgetConfig defaults(int appWidgetId) {
+        return new WidgetConfig(appWidgetId, null, MEAL_MODE_AUTO);
+    }
+
+    /**
+     * Get the meal type this widget shows at the given time
+     * @param nowMillis Wall clock time in milliseconds
+     * @return BREAKFAST or DINNER
+     */
+    public String mealTypeAt(long nowMillis) {
+        if (MealClock.BREAKFAST.equals(mealMode) || MealClock.DINNER.equals(mealMode)) {
+            return mealMode;
+        }
+        return MealClock.mealTypeAt(nowMillis);
+    }
+}
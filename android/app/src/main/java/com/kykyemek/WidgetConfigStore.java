@@ -0,0 +1,128 @@
+package com.kykyemek;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.List;
+
+/**
+ * Persists per-widget settings keyed by appWidgetId, plus the city currently
+ * selected in the app, which unconfigured widgets follow.
+ */
+public final class WidgetConfigStore {
+    private static final String PREFS_NAME = "com.kykyemek.MealWidget";
+    private static final String WIDGET_KEY_PREFIX = "widget_";
+    private static final String CITY_SUFFIX = "_city";
+    // Dormitory chosen by older versions; menus are per city, so it is only cleaned up
+    private static final String LEGACY_DORM_SUFFIX = "_dorm";
+    private static final String MEAL_MODE_SUFFIX = "_meal_mode";
+    private static final String DEFAULT_CITY_KEY = "kyk_yemek_widget_default_city";
+
+    private WidgetConfigStore() {
+    }
+
+    /**
+     * Get the settings for a widget, or defaults if it was never configured
+     */
+    public static WidgetConfig get(Context context, int appWidgetId) {
+        SharedPreferences prefs = getPrefs(context);
+        String prefix = WIDGET_KEY_PREFIX + appWidgetId;
+        return new WidgetConfig(
+            appWidgetId,
+            prefs.getString(prefix + CITY_SUFFIX, null),
+            prefs.getString(prefix + MEAL_MODE_SUFFIX, WidgetConfig.MEAL_MODE_AUTO));
+    }
+
+    /**
+     * Persist the settings for a widget
+     */
+    public static void save(Context context, WidgetConfig config) {
+        String prefix = WIDGET_KEY_PREFIX + config.appWidgetId;
+        getPrefs(context).edit()
+            .putString(prefix + CITY_SUFFIX, config.cityId)
+            .remove(prefix + LEGACY_DORM_SUFFIX)
+            .putString(prefix + MEAL_MODE_SUFFIX, config.mealMode)
+            .apply();
+    }
+
+    /**
+     * Remove the settings of deleted widgets
+     */
+    public static void delete(Context context, int[] appWidgetIds) {
+        SharedPreferences.Editor editor = getPrefs(context).edit();
+        for (int appWidgetId : appWidgetIds) {
+            String prefix = WIDGET_KEY_PREFIX + appWidgetId;
+            editor.remove(prefix + CITY_SUFFIX)
+                .remove(prefix + LEGACY_DORM_SUFFIX)
+                .remove(prefix + MEAL_MODE_SUFFIX);
+        }
+        editor.apply();
+    }
+
+    /**
+     * Get the city selected in the app, or null if the app never wrote one
+     */
+    public static String getDefaultCityId(Context context) {
+        return getPrefs(context).getString(DEFAULT_CITY_KEY, null);
+    }
+
+    /**
+     * Remember the city selected in the app. Only the app's city selection calls
+     * this; data published for a widget's own city leaves it alone.
+     * @return The widgets following the app, which now show another city; empty if it didn't change
+     */
+    public static int[] setDefaultCityId(Context context, String cityId) {
+        return cities(context).setDefaultCityId(cityId);
+    }
+
+    /**
+     * Get the city whose data a widget shows
+     * @return The configured city, the app's city, or null for the legacy unkeyed data
+     */
+    public static String resolveCityId(Context context, WidgetConfig config) {
+        return cities(context).resolveCityId(config);
+    }
+
+    /**
+     * Get the placed widgets that show the given city
+     * @param cityId City key, or null for widgets on the legacy unkeyed data
+     */
+    public static int[] getWidgetIdsForCity(Context context, String cityId) {
+        return cities(context).getWidgetIdsForCity(cityId);
+    }
+
+    /**
+     * Get the distinct cities shown by the placed widgets
+     */
+    public static List<String> getWidgetCityIds(Context context) {
+        return cities(context).getWidgetCityIds();
+    }
+
+    private static WidgetCities cities(Context context) {
+        return new WidgetCities(new WidgetCities.Source() {
+            @Override
+            public int[] getAllWidgetIds() {
+                return WidgetUpdateScheduler.getAllWidgetIds(context);
+            }
+
+            @Override
+            public WidgetConfig getConfig(int appWidgetId) {
+                return get(context, appWidgetId);
+            }
+
+            @Override
+            public String getDefaultCityId() {
+                return WidgetConfigStore.getDefaultCityId(context);
+            }
+
+            @Override
+            public void putDefaultCityId(String cityId) {
+                getPrefs(context).edit().putString(DEFAULT_CITY_KEY, cityId).apply();
+            }
+        });
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return WidgetStorage.getPrefs(context, PREFS_NAME);
+    }
+}
@@ -0,0 +1,220 @@
+package com.kykyemek;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Persistent queue of widget data requests for the React Native app. Requests
+ * with the same reason collapse into one entry holding the union of their widget
+ * ids, so a burst of widget events leaves a handful of entries rather than one
+ * per event. Entries survive process death and stay queued until JS acknowledges
+ * the batch that delivered them.
+ */
+public final class WidgetDataRequestQueue {
+    private static final String TAG = "WidgetDataRequestQueue";
+    private static final String PREFS_NAME = "widget_data_requests";
+    private static final String QUEUE_KEY = "queue";
+    private static final String SEQUENCE_KEY = "sequence";
+
+    private static final String ENTRY_WIDGET_IDS_KEY = "widgetIds";
+    private static final String ENTRY_SEQUENCE_KEY = "sequence";
+    private static final String ENTRY_REQUESTED_AT_KEY = "requestedAt";
+
+    /**
+     * One collapsed request
+     */
+    public static final class Request {
+        public final String reason;
+        public final List<Integer> widgetIds;
+        // Time of the first request merged into this entry
+        public final long requestedAt;
+
+        Request(String reason, List<Integer> widgetIds, long requestedAt) {
+            this.reason = reason;
+            this.widgetIds = widgetIds;
+            this.requestedAt = requestedAt;
+        }
+    }
+
+    /**
+     * Everything pending at one moment, delivered to JS as a single event
+     */
+    public static final class Batch {
+        // Acknowledging this id removes every entry last updated at or before it
+        public final long id;
+        public final List<Request> requests;
+
+        Batch(long id, List<Request> requests) {
+            this.id = id;
+            this.requests = requests;
+        }
+
+        /**
+         * Union of the widget ids of every request in the batch
+         */
+        public List<Integer> getWidgetIds() {
+            TreeSet<Integer> ids = new TreeSet<>();
+            for (Request request : requests) {
+                ids.addAll(request.widgetIds);
+            }
+            return new ArrayList<>(ids);
+        }
+    }
+
+    // Set by MealWidgetModule while React Native runs, so new requests get delivered
+    private static volatile Runnable sListener;
+
+    private WidgetDataRequestQueue() {
+    }
+
+    /**
+     * Queue a widget data request for the React Native app. Safe to call from any
+     * process state: the request waits in storage until JS is listening.
+     * @param context Context used to access storage
+     * @param reason Why the data is needed, one of the WidgetUpdateScheduler reasons
+     * @param appWidgetIds Widgets that need the data; may be empty
+     */
+    public static void request(Context context, String reason, int[] appWidgetIds) {
+        Runnable listener = sListener;
+        if (enqueue(context, reason, appWidgetIds) && listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Set the callback run whenever the queue gains a request, or null to clear it
+     */
+    static void setListener(Runnable listener) {
+        sListener = listener;
+    }
+
+    /**
+     * Record a data request, merging it into a pending request with the same reason
+     * @return true if the queue changed, false if the request was already pending
+     */
+    private static synchronized boolean enqueue(Context context, String reason, int[] appWidgetIds) {
+        SharedPreferences prefs = getPrefs(context);
+        JSONObject queue = readQueue(prefs);
+        try {
+            JSONObject entry = queue.optJSONObject(reason);
+            TreeSet<Integer> ids = entry != null ? readIds(entry) : new TreeSet<>();
+            boolean changed = entry == null;
+            if (appWidgetIds != null) {
+                for (int id : appWidgetIds) {
+                    changed |= ids.add(id);
+                }
+            }
+            if (!changed) {
+                Log.d(TAG, "Request for " + reason + " already pending");
+                return false;
+            }
+
+            long sequence = prefs.getLong(SEQUENCE_KEY, 0) + 1;
+            JSONObject updated = new JSONObject();
+            updated.put(ENTRY_WIDGET_IDS_KEY, new JSONArray(ids));
+            updated.put(ENTRY_SEQUENCE_KEY, sequence);
+            updated.put(ENTRY_REQUESTED_AT_KEY,
+                    entry != null ? entry.getLong(ENTRY_REQUESTED_AT_KEY) : System.currentTimeMillis());
+            queue.put(reason, updated);
+            prefs.edit()
+                    .putString(QUEUE_KEY, queue.toString())
+                    .putLong(SEQUENCE_KEY, sequence)
+                    .apply();
+            Log.d(TAG, "Queued data request " + reason + " for " + ids.size() + " widgets");
+            return true;
+        } catch (JSONException e) {
+            Log.e(TAG, "Error queueing data request: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Get every pending request without removing it
+     * @param context Context used to access storage
+     * @return Pending requests, or null if the queue is empty
+     */
+    public static synchronized Batch peek(Context context) {
+        SharedPreferences prefs = getPrefs(context);
+        JSONObject queue = readQueue(prefs);
+        if (queue.length() == 0) {
+            return null;
+        }
+
+        List<Request> requests = new ArrayList<>(queue.length());
+        Iterator<String> reasons = queue.keys();
+        while (reasons.hasNext()) {
+            String reason = reasons.next();
+            JSONObject entry = queue.optJSONObject(reason);
+            if (entry == null) {
+                continue;
+            }
+            requests.add(new Request(reason, Collections.unmodifiableList(new ArrayList<>(readIds(entry))),
+                    entry.optLong(ENTRY_REQUESTED_AT_KEY)));
+        }
+        return new Batch(prefs.getLong(SEQUENCE_KEY, 0), Collections.unmodifiableList(requests));
+    }
+
+    /**
+     * Remove the requests delivered in a batch. Requests merged or added after the
+     * batch was taken stay queued.
+     * @param context Context used to access storage
+     * @param batchId Id of the delivered batch
+     */
+    public static synchronized void acknowledge(Context context, long batchId) {
+        SharedPreferences prefs = getPrefs(context);
+        JSONObject queue = readQueue(prefs);
+        Iterator<String> reasons = queue.keys();
+        List<String> done = new ArrayList<>();
+        while (reasons.hasNext()) {
+            String reason = reasons.next();
+            JSONObject entry = queue.optJSONObject(reason);
+            if (entry == null || entry.optLong(ENTRY_SEQUENCE_KEY) <= batchId) {
+                done.add(reason);
+            }
+        }
+        for (String reason : done) {
+            queue.remove(reason);
+        }
+        prefs.edit().putString(QUEUE_KEY, queue.toString()).apply();
+        Log.d(TAG, "Acknowledged batch " + batchId + ", " + queue.length() + " requests left");
+    }
+
+    private static JSONObject readQueue(SharedPreferences prefs) {
+        String json = prefs.getString(QUEUE_KEY, null);
+        if (json == null) {
+            return new JSONObject();
+        }
+        try {
+            return new JSONObject(json);
+        } catch (JSONException e) {
+            Log.e(TAG, "Dropping unreadable request queue: " + e.getMessage());
+            return new JSONObject();
+        }
+    }
+
+    private static TreeSet<Integer> readIds(JSONObject entry) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        JSONArray array = entry.optJSONArray(ENTRY_WIDGET_IDS_KEY);
+        if (array != null) {
+            for (int i = 0; i < array.length(); i++) {
+                ids.add(array.optInt(i));
+            }
+        }
+        return ids;
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return WidgetStorage.getPrefs(context, PREFS_NAME);
+    }
+}
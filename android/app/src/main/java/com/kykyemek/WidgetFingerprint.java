@@ -0,0 +1,89 @@
+package com.kykyemek;
+
+import java.util.Objects;
+
+/**
+ * Fingerprint of what a widget last rendered.
+ * Lets the provider skip updates for unchanged widgets, and only patch the
+ * menu list when the header (layout, meal, date, location, countdown phase) stays the same.
+ */
+public final class WidgetFingerprint {
+    public final int layoutId;
+    public final boolean hasData;
+    public final String mealType;
+    public final String mealDate;
+    public final String cityName;
+    public final int itemsHash;
+    public final MealCountdown.Phase countdownPhase;
+
+    private WidgetFingerprint(int layoutId, boolean hasData, String mealType, String mealDate,
+                              String cityName, int itemsHash, MealCountdown.Phase countdownPhase) {
+        this.layoutId = layoutId;
+        this.hasData = hasData;
+        this.mealType = mealType;
+        this.mealDate = mealDate;
+        this.cityName = cityName;
+        this.itemsHash = itemsHash;
+        this.countdownPhase = countdownPhase;
+    }
+
+    /**
+     * Build the fingerprint for a widget rendered with the given layout and data
+     * @param layoutId Layout bucket the widget is rendered with
+     * @param showsItems Whether the layout lists menu items; item changes don't affect layouts that don't
+     * @param snapshot Snapshot being rendered, or null for the empty state
+     * @param countdown Countdown shown with the snapshot; only its phase matters,
+     *                  since the launcher ticks the time itself
+     * @return Fingerprint of the rendered state
+     */
+    public static WidgetFingerprint of(int layoutId, boolean showsItems, WidgetSnapshot snapshot,
+                                       MealCountdown countdown) {
+        if (snapshot == null) {
+            return new WidgetFingerprint(layoutId, false, null, null, null, 0, MealCountdown.Phase.NONE);
+        }
+        int itemsHash;
+        if (!showsItems) {
+            itemsHash = 0;
+        } else {
+            itemsHash = snapshot.renderModel != null ? snapshot.renderModel.itemsHash : snapshot.items.hashCode();
+        }
+        return new WidgetFingerprint(layoutId, true, snapshot.mealType, snapshot.mealDate,
+                snapshot.cityName, itemsHash, countdown.phase);
+    }
+
+    /**
+     * Whether everything except the item list matches the other fingerprint
+     */
+    public boolean sameHeaderAs(WidgetFingerprint other) {
+        return other != null
+                && hasData && other.hasData
+                && layoutId == other.layoutId
+                && Objects.equals(mealType, other.mealType)
+                && Objects.equals(mealDate, other.mealDate)
+                && Objects.equals(cityName, other.cityName)
+                && countdownPhase == other.countdownPhase;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WidgetFingerprint)) {
+            return false;
+        }
+        WidgetFingerprint other = (WidgetFingerprint) o;
+        return layoutId == other.layoutId
+                && hasData == other.hasData
+                && itemsHash == other.itemsHash
+                && Objects.equals(mealType, other.mealType)
+                && Objects.equals(mealDate, other.mealDate)
+                && Objects.equals(cityName, other.cityName)
+                && countdownPhase == other.countdownPhase;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(layoutId, hasData, mealType, mealDate, cityName, itemsHash, countdownPhase);
+    }
+}
@@ -0,0 +1,131 @@
+package com.kykyemek;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+
+import java.util.ArrayList;
+
+/**
+ * Initial props for the React Native root when the app is opened from a widget.
+ * The tap intent names the city and meal the widget showed, not the widget, so every
+ * widget showing the same data shares one intent. The current snapshot for that meal
+ * is attached so the meal screen can render it on the first frame and revalidate
+ * against the API in the background.
+ */
+public final class WidgetLaunchOptions {
+    private static final String TAG = "WidgetLaunchOptions";
+
+    // Action of the widget tap intent
+    public static final String ACTION_OPEN_MEAL = "com.kykyemek.OPEN_MEAL";
+    public static final String EXTRA_CITY_ID = "com.kykyemek.EXTRA_CITY_ID";
+    public static final String EXTRA_MEAL_DATE = "com.kykyemek.EXTRA_MEAL_DATE";
+    public static final String EXTRA_MEAL_TYPE = "com.kykyemek.EXTRA_MEAL_TYPE";
+
+    // Scheme of the tap intent's data URI. It is not the deep link scheme, and Linking only reads ACTION_VIEW data
+    private static final String DATA_KEY_SCHEME = "kykyemek-widget";
+
+    // Initial prop holding the launch, read by App.tsx
+    private static final String WIDGET_LAUNCH_PROP = "widgetLaunch";
+
+    private WidgetLaunchOptions() {
+    }
+
+    /**
+     * Build the widget tap intent
+     * @param context Context used to resolve the activity
+     * @param snapshot Snapshot the widget shows, or null if it shows no data
+     * @return Intent opening the app on the widget's meal
+     */
+    public static Intent createIntent(Context context, WidgetSnapshot snapshot) {
+        Intent intent = new Intent(context, MainActivity.class)
+                .setAction(ACTION_OPEN_MEAL)
+                // PendingIntents that differ only in extras are the same, so the data key goes in the data
+                .setData(Uri.fromParts(DATA_KEY_SCHEME, dataKey(snapshot), null))
+                .setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        if (snapshot != null) {
+            intent.putExtra(EXTRA_CITY_ID, snapshot.cityId);
+            intent.putExtra(EXTRA_MEAL_DATE, snapshot.mealDate);
+            intent.putExtra(EXTRA_MEAL_TYPE, snapshot.mealType);
+        }
+        return intent;
+    }
+
+    /**
+     * Key of the data a tap intent carries; widgets with the same key share the intent
+     * @param snapshot Snapshot the widget shows, or null if it shows no data
+     */
+    public static String dataKey(WidgetSnapshot snapshot) {
+        return snapshot == null ? "" : snapshot.cityId + "|" + snapshot.mealDate + "|" + snapshot.mealType;
+    }
+
+    /**
+     * Whether the activity was opened by tapping a widget
+     */
+    public static boolean isWidgetLaunch(Intent intent) {
+        return intent != null && ACTION_OPEN_MEAL.equals(intent.getAction());
+    }
+
+    /**
+     * Build the launch options for the React Native root
+     * @param context Context used to read the widget data
+     * @param intent Intent the activity was started with
+     * @return Launch options, or null if the app was not opened from a widget
+     */
+    public static Bundle build(Context context, Intent intent) {
+        Bundle launch = buildLaunch(context, intent);
+        if (launch == null) {
+            return null;
+        }
+        Bundle options = new Bundle();
+        options.putBundle(WIDGET_LAUNCH_PROP, launch);
+        return options;
+    }
+
+    /**
+     * Build the widget launch JS receives, as the widgetLaunch initial prop on a cold
+     * start or as an onWidgetLaunch event when the app is already running
+     * @param context Context used to read the widget data
+     * @param intent Intent the activity was started or resumed with
+     * @return City, meal date, meal type and snapshot, or null if the intent isn't a widget tap
+     */
+    public static Bundle buildLaunch(Context context, Intent intent) {
+        if (!isWidgetLaunch(intent)) {
+            return null;
+        }
+        String cityId = intent.getStringExtra(EXTRA_CITY_ID);
+        String mealDate = intent.getStringExtra(EXTRA_MEAL_DATE);
+        String mealType = intent.getStringExtra(EXTRA_MEAL_TYPE);
+
+        Bundle launch = new Bundle();
+        launch.putString("cityId", cityId);
+        launch.putString("mealDate", mealDate);
+        launch.putString("mealType", mealType);
+
+        // The data may have been refreshed since the widget was rendered; JS checks the date and type
+        WidgetSnapshot snapshot = mealDate != null && mealType != null
+                ? WidgetSnapshotStore.forSlot(context, cityId, mealDate, mealType) : null;
+        if (snapshot != null) {
+            launch.putBundle("snapshot", toBundle(snapshot));
+        }
+        Log.d(TAG, "Opened from widget for city " + cityId + (snapshot != null ? " with snapshot" : ""));
+        return launch;
+    }
+
+    /**
+     * Snapshot fields as JS sees them, shared with the snapshot reads of the native modules
+     */
+    static Bundle toBundle(WidgetSnapshot snapshot) {
+        Bundle bundle = new Bundle();
+        // Bundles become JS numbers as doubles
+        bundle.putDouble("version", snapshot.version);
+        bundle.putString("cityId", snapshot.cityId);
+        bundle.putString("cityName", snapshot.cityName);
+        bundle.putString("mealType", snapshot.mealType);
+        bundle.putString("mealDate", snapshot.mealDate);
+        bundle.putStringArrayList("items", new ArrayList<>(snapshot.items));
+        return bundle;
+    }
+}
@@ -0,0 +1,230 @@
+package com.kykyemek;
+
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process metrics for the widget pipeline: parse time, render latency per
+ * layout size, RemoteViews and list factory activity, and the time from new data
+ * being written to the widgets being pushed. Read from JS through
+ * MealWidgetModule.getWidgetMetrics and from adb through
+ * {@code dumpsys activity service com.kykyemek/.MealWidgetService}.
+ */
+public final class WidgetMetrics {
+    /**
+     * Fixed-bucket latency histogram. Cheap enough to record on every render.
+     */
+    public static final class Histogram {
+        // Upper bounds in milliseconds; the last bucket counts everything slower
+        private static final long[] BUCKET_BOUNDS_MS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500 };
+
+        private final long[] counts = new long[BUCKET_BOUNDS_MS.length + 1];
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        public synchronized void record(long nanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MS.length && millis >= BUCKET_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized double getMeanMs() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        public synchronized double getMaxMs() {
+            return maxNanos / 1e6;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given percentile, in milliseconds
+         * @param percentile Percentile between 0 and 100
+         * @return Bucket bound, or the observed maximum for the open-ended last bucket
+         */
+        public synchronized double getPercentileMs(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < BUCKET_BOUNDS_MS.length ? BUCKET_BOUNDS_MS[i] : getMaxMs();
+                }
+            }
+            return getMaxMs();
+        }
+
+        synchronized void dump(PrintWriter writer, String name) {
+            writer.println(String.format(Locale.US, "  %s: count=%d mean=%.2fms p50<=%.0fms p95<=%.0fms max=%.2fms",
+                    name, count, getMeanMs(), getPercentileMs(50), getPercentileMs(95), getMaxMs()));
+        }
+    }
+
+    public static final Histogram RENDER_SMALL = new Histogram();
+    public static final Histogram RENDER_MEDIUM = new Histogram();
+    public static final Histogram RENDER_LARGE = new Histogram();
+    // API 31+ renders, which build all three layouts in one pass
+    public static final Histogram RENDER_RESPONSIVE = new Histogram();
+    public static final Histogram PARSE = new Histogram();
+    public static final Histogram DATA_TO_PUSH = new Histogram();
+
+    private static final AtomicLong sRemoteViewsCreated = new AtomicLong();
+    private static final AtomicLong sFullUpdates = new AtomicLong();
+    private static final AtomicLong sPartialUpdates = new AtomicLong();
+    private static final AtomicLong sSkippedUpdates = new AtomicLong();
+    private static final AtomicLong sStaleRendersDropped = new AtomicLong();
+    private static final AtomicLong sGetViewAtCalls = new AtomicLong();
+    private static final AtomicLong sFactoryReloads = new AtomicLong();
+    private static final AtomicLong sAppWidgetManagerCalls = new AtomicLong();
+
+    // Write time per city, cleared when the first widget showing it is pushed
+    private static final Map<String, Long> sPendingWrites = new HashMap<>();
+
+    private WidgetMetrics() {
+    }
+
+    /**
+     * Record how long a widget took to render and push, by layout
+     */
+    public static void recordRender(int layoutId, long nanos) {
+        if (layoutId == WidgetRenderPlan.LAYOUT_RESPONSIVE) {
+            RENDER_RESPONSIVE.record(nanos);
+        } else if (layoutId == R.layout.meal_widget_large) {
+            RENDER_LARGE.record(nanos);
+        } else if (layoutId == R.layout.meal_widget_medium) {
+            RENDER_MEDIUM.record(nanos);
+        } else {
+            RENDER_SMALL.record(nanos);
+        }
+    }
+
+    /**
+     * Note that new data for a city was written, starting the data-to-push clock
+     */
+    public static void markDataWritten(String cityId) {
+        synchronized (sPendingWrites) {
+            // Keep the oldest write: the clock measures how long the first change waited
+            if (!sPendingWrites.containsKey(cityId)) {
+                sPendingWrites.put(cityId, System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Note that a widget showing the city was pushed, stopping the data-to-push clock
+     */
+    public static void markPushed(String cityId) {
+        Long writtenAt;
+        synchronized (sPendingWrites) {
+            writtenAt = sPendingWrites.remove(cityId);
+        }
+        if (writtenAt != null) {
+            DATA_TO_PUSH.record(System.nanoTime() - writtenAt);
+        }
+    }
+
+    public static void countRemoteViews(int created) {
+        sRemoteViewsCreated.addAndGet(created);
+    }
+
+    public static void countFullUpdates(int widgets) {
+        sFullUpdates.addAndGet(widgets);
+    }
+
+    public static void countPartialUpdates(int widgets) {
+        sPartialUpdates.addAndGet(widgets);
+    }
+
+    public static void countSkippedUpdate() {
+        sSkippedUpdates.incrementAndGet();
+    }
+
+    public static void countStaleRenderDropped() {
+        sStaleRendersDropped.incrementAndGet();
+    }
+
+    public static void countGetViewAt() {
+        sGetViewAtCalls.incrementAndGet();
+    }
+
+    public static void countFactoryReload() {
+        sFactoryReloads.incrementAndGet();
+    }
+
+    public static void countAppWidgetManagerCall() {
+        sAppWidgetManagerCalls.incrementAndGet();
+    }
+
+    public static long getRemoteViewsCreated() {
+        return sRemoteViewsCreated.get();
+    }
+
+    public static long getFullUpdates() {
+        return sFullUpdates.get();
+    }
+
+    public static long getPartialUpdates() {
+        return sPartialUpdates.get();
+    }
+
+    public static long getSkippedUpdates() {
+        return sSkippedUpdates.get();
+    }
+
+    public static long getStaleRendersDropped() {
+        return sStaleRendersDropped.get();
+    }
+
+    public static long getGetViewAtCalls() {
+        return sGetViewAtCalls.get();
+    }
+
+    public static long getFactoryReloads() {
+        return sFactoryReloads.get();
+    }
+
+    /**
+     * Number of update and notify calls made to the AppWidgetManager
+     */
+    public static long getAppWidgetManagerCalls() {
+        return sAppWidgetManagerCalls.get();
+    }
+
+    /**
+     * Write the counters and histograms as lines of the dumpsys report
+     * MealWidgetService writes
+     */
+    public static void dump(PrintWriter writer) {
+        writer.println("  fullUpdates=" + getFullUpdates()
+                + " partialUpdates=" + getPartialUpdates()
+                + " skippedUpdates=" + getSkippedUpdates()
+                + " staleRendersDropped=" + getStaleRendersDropped()
+                + " appWidgetManagerCalls=" + getAppWidgetManagerCalls());
+        writer.println("  remoteViewsCreated=" + getRemoteViewsCreated()
+                + " getViewAtCalls=" + getGetViewAtCalls()
+                + " factoryReloads=" + getFactoryReloads());
+        RENDER_SMALL.dump(writer, "renderSmall");
+        RENDER_MEDIUM.dump(writer, "renderMedium");
+        RENDER_LARGE.dump(writer, "renderLarge");
+        RENDER_RESPONSIVE.dump(writer, "renderResponsive");
+        PARSE.dump(writer, "parse");
+        DATA_TO_PUSH.dump(writer, "dataToPush");
+    }
+}
@@ -0,0 +1,129 @@
+package com.kykyemek;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ready-to-bind view of a snapshot, built once when the data is written.
+ * Labels are localized, the date is formatted, and the item list is cut to the
+ * medium layout's size ahead of time, so rendering only copies fields into RemoteViews.
+ * Plain Java: localized strings come in through {@link Labels}.
+ */
+public final class WidgetRenderModel {
+    // Number of items the medium layout shows before the "+ N more" line
+    public static final int MEDIUM_MAX_ITEMS = 3;
+
+    public final String mealLabel;
+    public final String displayDate;
+    // Null when the location line should be hidden
+    public final String locationText;
+    public final List<String> mediumItems;
+    public final int mediumOverflow;
+    // Null when every item fits in the medium layout
+    public final String mediumMoreText;
+    public final List<String> largeItems;
+    public final int itemsHash;
+    // Stable list ids per item, derived from the item text; medium items use the same prefix
+    private final long[] itemIds;
+    // Icon category per item, null for items without an icon
+    private final MenuItemClassifier.Category[] itemCategories;
+
+    private WidgetRenderModel(String mealLabel, String displayDate, String locationText, List<String> mediumItems,
+                              int mediumOverflow, String mediumMoreText, List<String> largeItems,
+                              String mealType) {
+        this.mealLabel = mealLabel;
+        this.displayDate = displayDate;
+        this.locationText = locationText;
+        this.mediumItems = mediumItems;
+        this.mediumOverflow = mediumOverflow;
+        this.mediumMoreText = mediumMoreText;
+        this.largeItems = largeItems;
+        this.itemsHash = largeItems.hashCode();
+        this.itemIds = stableItemIds(largeItems);
+        this.itemCategories = new MenuItemClassifier.Category[largeItems.size()];
+        for (int i = 0; i < itemCategories.length; i++) {
+            itemCategories[i] = MenuItemClassifier.classify(largeItems.get(i), mealType, i);
+        }
+    }
+
+    /**
+     * Stable id of the item at a position, the same for both layouts
+     */
+    public long getItemId(int position) {
+        return itemIds[position];
+    }
+
+    /**
+     * Icon category of the item at a position, the same for both layouts
+     * @return Category, or null if the item has no icon
+     */
+    public MenuItemClassifier.Category getItemCategory(int position) {
+        return itemCategories[position];
+    }
+
+    /**
+     * Localized strings a render model is built with
+     */
+    public static final class Labels {
+        public final String breakfast;
+        public final String dinner;
+        // Format with one integer argument, the number of items left out
+        public final String moreItemsFormat;
+
+        public Labels(String breakfast, String dinner, String moreItemsFormat) {
+            this.breakfast = breakfast;
+            this.dinner = dinner;
+            this.moreItemsFormat = moreItemsFormat;
+        }
+    }
+
+    /**
+     * Derive everything the widget layouts show from a snapshot
+     * @param labels Localized strings to use
+     * @param snapshot Snapshot to render
+     * @return Render model for the snapshot
+     */
+    public static WidgetRenderModel build(Labels labels, WidgetSnapshot snapshot) {
+        String mealLabel = MealClock.BREAKFAST.equals(snapshot.mealType) ? labels.breakfast : labels.dinner;
+
+        List<String> items = snapshot.items;
+        int overflow = Math.max(0, items.size() - MEDIUM_MAX_ITEMS);
+        return new WidgetRenderModel(
+            mealLabel,
+            MealDateFormatter.formatDisplayDate(snapshot.mealDate),
+            snapshot.hasCityName() ? snapshot.cityName : null,
+            overflow > 0 ? items.subList(0, MEDIUM_MAX_ITEMS) : items,
+            overflow,
+            overflow > 0 ? String.format(labels.moreItemsFormat, overflow) : null,
+            items,
+            snapshot.mealType);
+    }
+
+    /**
+     * Derive ids from item text so an item keeps its id when the list shifts.
+     * Repeated items are told apart by how many times the text appeared before.
+     */
+    static long[] stableItemIds(List<String> items) {
+        long[] ids = new long[items.size()];
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            String item = items.get(i);
+            Integer seen = occurrences.get(item);
+            int occurrence = seen == null ? 0 : seen;
+            occurrences.put(item, occurrence + 1);
+            ids[i] = hash64(item) * 31 + occurrence;
+        }
+        return ids;
+    }
+
+    // 64-bit FNV-1a over the UTF-16 chars; String.hashCode() collides too easily for ids
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,116 @@
+package com.kykyemek;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What one render pass pushes. Widgets whose fingerprint matches what they last
+ * showed are skipped. The rest are grouped by layout bucket and snapshot, so each
+ * group's RemoteViews are built once and pushed to all of its widgets in a single
+ * call, and a group whose header is unchanged only patches the item list.
+ * Plain Java, so the JVM load harness makes the same decisions as the provider.
+ */
+final class WidgetRenderPlan {
+    // Layout key for API 31+, where one update carries every layout and the launcher picks by size
+    static final int LAYOUT_RESPONSIVE = 0;
+
+    private final boolean responsive;
+    private final int smallLayoutId;
+    private final long nowMillis;
+
+    final List<Group> groups = new ArrayList<>();
+    // Widgets that will show the empty state
+    final List<Integer> withoutData = new ArrayList<>();
+
+    /**
+     * @param responsive Whether every size is sent at once (API 31+). Items then travel
+     *                   inline with the update, so there are no partial updates or list reloads.
+     * @param smallLayoutId Layout bucket without an item list
+     * @param nowMillis Time the countdowns are computed for
+     */
+    WidgetRenderPlan(boolean responsive, int smallLayoutId, long nowMillis) {
+        this.responsive = responsive;
+        this.smallLayoutId = smallLayoutId;
+        this.nowMillis = nowMillis;
+    }
+
+    /**
+     * Add a widget to the plan
+     * @param appWidgetId Widget to render
+     * @param generation Update generation the render belongs to
+     * @param layoutId Layout bucket the widget is rendered with
+     * @param snapshot Snapshot to show, or null for the empty state
+     * @param previous Fingerprint of what the widget last showed, or null if this process hasn't drawn it
+     * @return false if the widget already shows this and is skipped
+     */
+    boolean add(int appWidgetId, long generation, int layoutId, WidgetSnapshot snapshot,
+                WidgetFingerprint previous) {
+        MealCountdown countdown = MealCountdown.at(nowMillis, snapshot);
+        WidgetFingerprint fingerprint = WidgetFingerprint.of(
+                layoutId, layoutId != smallLayoutId, snapshot, countdown);
+        if (fingerprint.equals(previous)) {
+            return false;
+        }
+        if (snapshot == null) {
+            withoutData.add(appWidgetId);
+        }
+
+        // When only the menu items changed, the list views are patched instead of replaced
+        boolean partial = !responsive && fingerprint.sameHeaderAs(previous);
+        Group group = findGroup(layoutId, snapshot, partial);
+        if (group == null) {
+            group = new Group(layoutId, snapshot, countdown, fingerprint, partial);
+            groups.add(group);
+        }
+
+        // The list factory caches items, so make it reload when they changed
+        boolean itemsChanged = !responsive && layoutId != smallLayoutId
+                && (previous == null || previous.itemsHash != fingerprint.itemsHash);
+        group.add(appWidgetId, generation, itemsChanged);
+        return true;
+    }
+
+    private Group findGroup(int layoutId, WidgetSnapshot snapshot, boolean partial) {
+        for (Group group : groups) {
+            // The stores hand out one instance per data version and meal slot
+            if (group.layoutId == layoutId && group.snapshot == snapshot && group.partial == partial) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Widgets that show the same layout bucket and snapshot, and so get the same RemoteViews
+     */
+    static final class Group {
+        final int layoutId;
+        final WidgetSnapshot snapshot;
+        final MealCountdown countdown;
+        final WidgetFingerprint fingerprint;
+        final boolean partial;
+        final List<Integer> appWidgetIds = new ArrayList<>();
+        final List<Long> generations = new ArrayList<>();
+        // Widgets whose list factory has to reload after the push
+        final Set<Integer> itemsChanged = new HashSet<>();
+
+        Group(int layoutId, WidgetSnapshot snapshot, MealCountdown countdown, WidgetFingerprint fingerprint,
+              boolean partial) {
+            this.layoutId = layoutId;
+            this.snapshot = snapshot;
+            this.countdown = countdown;
+            this.fingerprint = fingerprint;
+            this.partial = partial;
+        }
+
+        void add(int appWidgetId, long generation, boolean itemsChanged) {
+            appWidgetIds.add(appWidgetId);
+            generations.add(generation);
+            if (itemsChanged) {
+                this.itemsChanged.add(appWidgetId);
+            }
+        }
+    }
+}
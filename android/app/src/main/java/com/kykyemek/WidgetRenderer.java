@@ -0,0 +1,230 @@
+package com.kykyemek;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the provider's render passes. Each pass is planned by {@link WidgetRenderPlan},
+ * every group's views are built once and pushed through the {@link Host}, and what each
+ * widget now shows is remembered so the next pass can skip it. Building and pushing
+ * views is left to the host, so this is plain Java and the JVM load harness renders
+ * with the same code as the device.
+ */
+final class WidgetRenderer {
+    private static final String TAG = "WidgetRenderer";
+
+    /**
+     * Where a pass gets its data and sends its views; AppWidgetManager on a device
+     * @param <V> Views pushed to a group, built once per group
+     */
+    interface Host<V> {
+        /**
+         * @return Snapshot the widget shows, or null for the empty state
+         */
+        WidgetSnapshot snapshotFor(int appWidgetId);
+
+        /**
+         * @return Layout bucket for the widget's size, when sizes aren't sent at once
+         */
+        int layoutFor(int appWidgetId);
+
+        /**
+         * Whether the render generation is still the newest requested for the widget
+         */
+        boolean isLatestGeneration(int appWidgetId, long generation);
+
+        /**
+         * Ask the app for data for widgets that will show the empty state
+         */
+        void requestData(int[] appWidgetIds);
+
+        V buildViews(WidgetRenderPlan.Group group);
+
+        void updateAppWidget(int[] appWidgetIds, V views);
+
+        void partiallyUpdateAppWidget(int[] appWidgetIds, V views);
+
+        /**
+         * Make the widgets' list factories reload their items
+         */
+        void notifyItemsChanged(int[] appWidgetIds);
+
+        /**
+         * Called after a group was pushed to at least one widget
+         */
+        void onPushed(WidgetRenderPlan.Group group);
+    }
+
+    private final boolean responsive;
+    private final int smallLayoutId;
+    // What each widget last rendered, so unchanged widgets can be skipped
+    private final Map<Integer, WidgetFingerprint> rendered = new HashMap<>();
+
+    /**
+     * @param responsive Whether every size is sent at once (API 31+)
+     * @param smallLayoutId Layout bucket without an item list
+     */
+    WidgetRenderer(boolean responsive, int smallLayoutId) {
+        this.responsive = responsive;
+        this.smallLayoutId = smallLayoutId;
+    }
+
+    /**
+     * Render a batch of widgets. Widgets that would show the same thing are grouped by
+     * layout bucket and snapshot; each group's views are built once and pushed to all
+     * of its widgets in a single call. Called from one thread at a time.
+     * @param appWidgetIds Widgets to render
+     * @param generations Update generation each widget's render belongs to; a widget's
+     *                    result is dropped if a newer update for it was requested in the meantime
+     * @param nowMillis Time the countdowns are computed for
+     * @return Number of distinct view configurations built
+     */
+    <V> int render(Host<V> host, int[] appWidgetIds, long[] generations, long nowMillis) {
+        WidgetRenderPlan plan = new WidgetRenderPlan(responsive, smallLayoutId, nowMillis);
+
+        for (int i = 0; i < appWidgetIds.length; i++) {
+            int appWidgetId = appWidgetIds[i];
+            try {
+                WidgetSnapshot snapshot = host.snapshotFor(appWidgetId);
+                int layoutId = responsive ? WidgetRenderPlan.LAYOUT_RESPONSIVE : host.layoutFor(appWidgetId);
+
+                // Compare against what this widget last showed
+                WidgetFingerprint previous;
+                synchronized (rendered) {
+                    previous = rendered.get(appWidgetId);
+                }
+                if (!plan.add(appWidgetId, generations[i], layoutId, snapshot, previous)) {
+                    Log.d(TAG, "Widget " + appWidgetId + " unchanged, skipping update");
+                    WidgetMetrics.countSkippedUpdate();
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error preparing widget " + appWidgetId, e);
+            }
+        }
+
+        if (!plan.withoutData.isEmpty()) {
+            host.requestData(toArray(plan.withoutData));
+        }
+
+        for (WidgetRenderPlan.Group group : plan.groups) {
+            try {
+                renderGroup(host, group);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error rendering widgets " + group.appWidgetIds, e);
+            }
+        }
+        return plan.groups.size();
+    }
+
+    /**
+     * Drop what removed widgets showed
+     */
+    void forget(int[] appWidgetIds) {
+        synchronized (rendered) {
+            for (int appWidgetId : appWidgetIds) {
+                rendered.remove(appWidgetId);
+            }
+        }
+    }
+
+    /**
+     * Forget what every widget showed, so the next pass redraws them all
+     */
+    void clear() {
+        synchronized (rendered) {
+            rendered.clear();
+        }
+    }
+
+    /**
+     * Get the widgets that may show the empty state: drawn without data, or not
+     * drawn by this process at all
+     */
+    int[] getWidgetsWithoutData(int[] appWidgetIds) {
+        List<Integer> withoutData = new ArrayList<>();
+        synchronized (rendered) {
+            for (int appWidgetId : appWidgetIds) {
+                WidgetFingerprint fingerprint = rendered.get(appWidgetId);
+                if (fingerprint == null || !fingerprint.hasData) {
+                    withoutData.add(appWidgetId);
+                }
+            }
+        }
+        return toArray(withoutData);
+    }
+
+    /**
+     * Build one group's views and push them to every widget in the group whose
+     * render is still the newest
+     */
+    private <V> void renderGroup(Host<V> host, WidgetRenderPlan.Group group) {
+        long startNanos = System.nanoTime();
+        V views = host.buildViews(group);
+
+        List<Integer> pushed = new ArrayList<>(group.appWidgetIds.size());
+        List<Integer> reload = new ArrayList<>();
+        for (int i = 0; i < group.appWidgetIds.size(); i++) {
+            int appWidgetId = group.appWidgetIds.get(i);
+            if (pushAllowed(host, appWidgetId, group.generations.get(i))) {
+                pushed.add(appWidgetId);
+                if (group.itemsChanged.contains(appWidgetId)) {
+                    reload.add(appWidgetId);
+                }
+            }
+        }
+        if (pushed.isEmpty()) {
+            return;
+        }
+
+        // One call updates all of the group's widgets at once
+        if (group.partial) {
+            host.partiallyUpdateAppWidget(toArray(pushed), views);
+            WidgetMetrics.countPartialUpdates(pushed.size());
+        } else {
+            host.updateAppWidget(toArray(pushed), views);
+            WidgetMetrics.countFullUpdates(pushed.size());
+        }
+        WidgetMetrics.countAppWidgetManagerCall();
+        if (!reload.isEmpty()) {
+            host.notifyItemsChanged(toArray(reload));
+            WidgetMetrics.countAppWidgetManagerCall();
+        }
+        // Only a push that went through counts as rendered; a failed one is retried by the next request
+        synchronized (rendered) {
+            for (int appWidgetId : pushed) {
+                rendered.put(appWidgetId, group.fingerprint);
+            }
+        }
+        Log.d(TAG, (group.partial ? "Patched " : "Updated ") + pushed + " with one render");
+
+        WidgetMetrics.recordRender(group.layoutId, System.nanoTime() - startNanos);
+        if (group.snapshot != null) {
+            WidgetMetrics.markPushed(group.snapshot.cityId);
+        }
+        host.onPushed(group);
+    }
+
+    /**
+     * Check that this render is still the newest one for the widget
+     */
+    private static boolean pushAllowed(Host<?> host, int appWidgetId, long generation) {
+        if (!host.isLatestGeneration(appWidgetId, generation)) {
+            Log.d(TAG, "Dropping stale render for widget " + appWidgetId);
+            WidgetMetrics.countStaleRenderDropped();
+            return false;
+        }
+        return true;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
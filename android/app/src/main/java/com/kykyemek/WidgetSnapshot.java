@@ -0,0 +1,95 @@
+package com.kykyemek;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable, parsed view of the widget data written by the React Native app.
+ * Instances are shared between the widget provider and the list factory, so
+ * they must never be modified after construction.
+ */
+public final class WidgetSnapshot {
+    private static final String WIDGET_CITY_ID_KEY = "cityId";
+    private static final String WIDGET_MEAL_TYPE_KEY = "mealType";
+    private static final String WIDGET_MEAL_DATE_KEY = "mealDate";
+    private static final String WIDGET_CITY_NAME_KEY = "cityName";
+    private static final String WIDGET_ITEMS_KEY = "items";
+
+    public final long version;
+    // City the data belongs to, or null for data written without a city
+    public final String cityId;
+    public final String mealType;
+    public final String mealDate;
+    public final String cityName;
+    public final List<String> items;
+    // Built by the stores when the snapshot is written; null until then
+    public final WidgetRenderModel renderModel;
+
+    public WidgetSnapshot(long version, String cityId, String mealType, String mealDate, String cityName,
+                          List<String> items) {
+        this(version, cityId, mealType, mealDate, cityName,
+             Collections.unmodifiableList(new ArrayList<>(items)), null);
+    }
+
+    private WidgetSnapshot(long version, String cityId, String mealType, String mealDate, String cityName,
+                           List<String> items, WidgetRenderModel renderModel) {
+        this.version = version;
+        this.cityId = cityId;
+        this.mealType = mealType;
+        this.mealDate = mealDate;
+        this.cityName = cityName;
+        this.items = items;
+        this.renderModel = renderModel;
+    }
+
+    /**
+     * Parse the widget data JSON into a snapshot
+     * @param version Version the snapshot was written with
+     * @param json JSON string containing widget data
+     * @return Parsed snapshot
+     * @throws JSONException If a required field is missing or malformed
+     */
+    public static WidgetSnapshot parse(long version, String json) throws JSONException {
+        return fromJson(version, new JSONObject(json));
+    }
+
+    /**
+     * Build a snapshot from already parsed JSON
+     * @param version Version the snapshot was written with
+     * @param data Widget data object in the same shape {@link #parse} expects
+     * @return Snapshot
+     * @throws JSONException If a required field is missing or malformed
+     */
+    public static WidgetSnapshot fromJson(long version, JSONObject data) throws JSONException {
+        String cityId = data.has(WIDGET_CITY_ID_KEY) && !data.isNull(WIDGET_CITY_ID_KEY)
+                         ? data.getString(WIDGET_CITY_ID_KEY) : null;
+        String mealType = data.getString(WIDGET_MEAL_TYPE_KEY);
+        String mealDate = data.getString(WIDGET_MEAL_DATE_KEY);
+        String cityName = data.has(WIDGET_CITY_NAME_KEY) && !data.isNull(WIDGET_CITY_NAME_KEY)
+                           ? data.getString(WIDGET_CITY_NAME_KEY) : null;
+
+        JSONArray itemsArray = data.getJSONArray(WIDGET_ITEMS_KEY);
+        List<String> items = new ArrayList<>(itemsArray.length());
+        for (int i = 0; i < itemsArray.length(); i++) {
+            items.add(itemsArray.getString(i));
+        }
+
+        return new WidgetSnapshot(version, cityId, mealType, mealDate, cityName, items);
+    }
+
+    /**
+     * Get a copy of this snapshot carrying a precomputed render model
+     */
+    public WidgetSnapshot withRenderModel(WidgetRenderModel model) {
+        return new WidgetSnapshot(version, cityId, mealType, mealDate, cityName, items, model);
+    }
+
+    public boolean hasCityName() {
+        return cityName != null && !cityName.isEmpty();
+    }
+}
@@ -0,0 +1,171 @@
+package com.kykyemek;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary snapshot file, read through a memory-mapped buffer. It holds a
+ * single meal and a render needs all of it, so it is decoded in one pass.
+ *
+ * <pre>
+ *  0  int    magic "KYKW"
+ *  4  short  format version
+ *  6  ushort item count
+ *  8  long   data version
+ * 16  int    offset of cityId     (-1 for null)
+ * 20  int    offset of mealType
+ * 24  int    offset of mealDate
+ * 28  int    offset of cityName   (-1 for null)
+ * 32  int[]  offset of each item
+ *     string data: ushort byte length, then UTF-8 bytes
+ * </pre>
+ * Files are replaced by writing a temporary file and renaming it over the old
+ * one, so readers see either the old or the new snapshot, never a partial one.
+ */
+final class WidgetSnapshotFile {
+    private static final int MAGIC = 0x4B594B57;
+    private static final short FORMAT_VERSION = 1;
+
+    private static final int ITEM_COUNT_OFFSET = 6;
+    private static final int VERSION_OFFSET = 8;
+    private static final int CITY_ID_OFFSET = 16;
+    private static final int MEAL_TYPE_OFFSET = 20;
+    private static final int MEAL_DATE_OFFSET = 24;
+    private static final int CITY_NAME_OFFSET = 28;
+    private static final int HEADER_SIZE = 32;
+
+    private final ByteBuffer buffer;
+
+    private WidgetSnapshotFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        validate();
+    }
+
+    /**
+     * Map a snapshot file
+     * @param file File written by {@link #write}
+     * @return Reader over the mapped file
+     * @throws IOException If the file can't be read or isn't a valid snapshot file
+     */
+    static WidgetSnapshotFile open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new WidgetSnapshotFile(buffer);
+        }
+    }
+
+    /**
+     * Decode every field into a snapshot
+     */
+    WidgetSnapshot toSnapshot() {
+        int count = getItemCount();
+        List<String> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(readString(buffer.getInt(HEADER_SIZE + i * 4)));
+        }
+        return new WidgetSnapshot(buffer.getLong(VERSION_OFFSET),
+                readString(buffer.getInt(CITY_ID_OFFSET)),
+                readString(buffer.getInt(MEAL_TYPE_OFFSET)),
+                readString(buffer.getInt(MEAL_DATE_OFFSET)),
+                readString(buffer.getInt(CITY_NAME_OFFSET)),
+                items);
+    }
+
+    private int getItemCount() {
+        return buffer.getShort(ITEM_COUNT_OFFSET) & 0xFFFF;
+    }
+
+    /**
+     * Atomically replace a snapshot file
+     * @param file Destination file
+     * @param snapshot Snapshot to write, with the version it should be stored under
+     * @throws IOException If the file could not be written or replaced
+     */
+    static void write(File file, WidgetSnapshot snapshot) throws IOException {
+        replace(file, encode(snapshot));
+    }
+
+    /**
+     * Write data to a temporary file and rename it over the destination
+     * @param file Destination file
+     * @param data Complete file contents
+     * @throws IOException If the file could not be written or replaced
+     */
+    static void replace(File file, byte[] data) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    static byte[] encode(WidgetSnapshot snapshot) throws IOException {
+        int count = snapshot.items.size();
+        if (count > 0xFFFF) {
+            throw new IOException("Too many items: " + count);
+        }
+
+        // Fixed fields first, then items, in table order
+        List<byte[]> strings = new ArrayList<>(count + 4);
+        strings.add(BinaryStrings.toBytes(snapshot.cityId));
+        strings.add(BinaryStrings.toBytes(snapshot.mealType));
+        strings.add(BinaryStrings.toBytes(snapshot.mealDate));
+        strings.add(BinaryStrings.toBytes(snapshot.cityName));
+        for (String item : snapshot.items) {
+            strings.add(BinaryStrings.toBytes(item));
+        }
+
+        int size = HEADER_SIZE + count * 4;
+        for (byte[] bytes : strings) {
+            size += BinaryStrings.sizeOf(bytes);
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC);
+        out.putShort(FORMAT_VERSION);
+        out.putShort((short) count);
+        out.putLong(snapshot.version);
+
+        int offset = HEADER_SIZE + count * 4;
+        for (int i = 0; i < strings.size(); i++) {
+            offset = BinaryStrings.put(out, CITY_ID_OFFSET + i * 4, strings.get(i), offset);
+        }
+        return out.array();
+    }
+
+    // Check the header and every offset once, so the accessors can trust them
+    private void validate() throws IOException {
+        int size = buffer.limit();
+        if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a widget snapshot file");
+        }
+        if (buffer.getShort(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format " + buffer.getShort(4));
+        }
+        int tableEnd = HEADER_SIZE + getItemCount() * 4;
+        if (tableEnd > size) {
+            throw new IOException("Truncated item table");
+        }
+        for (int entry = CITY_ID_OFFSET; entry < tableEnd; entry += 4) {
+            boolean nullable = entry == CITY_ID_OFFSET || entry == CITY_NAME_OFFSET;
+            BinaryStrings.check(buffer, entry, nullable, tableEnd);
+        }
+    }
+
+    private String readString(int offset) {
+        return BinaryStrings.read(buffer, offset);
+    }
+}
@@ -0,0 +1,292 @@
+package com.kykyemek;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide holder for parsed widget snapshots, one per city.
+ * Each city's snapshot is stored once, no matter how many widgets show it, in a
+ * binary {@link WidgetSnapshotFile} in device-protected storage, and decoded once
+ * per write. The decoded result is shared by {@link MealWidgetProvider} and
+ * {@link MealWidgetService}. Data written to SharedPreferences by older versions
+ * is moved into a snapshot file the first time it is read.
+ */
+public final class WidgetSnapshotStore {
+    private static final String TAG = "WidgetSnapshotStore";
+    private static final String SNAPSHOT_DIR = "widget_snapshots";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    // Legacy storage, only read to migrate
+    private static final String PREFS_NAME = "com.kykyemek.MealWidget";
+    private static final String WIDGET_DATA_KEY = "kyk_yemek_widget_data";
+    private static final String WIDGET_DATA_VERSION_KEY = "kyk_yemek_widget_data_version";
+
+    private static final Object sLock = new Object();
+    // Keyed by city; the null key holds data written without a city
+    private static final Map<String, WidgetSnapshot> sSnapshots = new HashMap<>();
+    // Modification time of files that failed to decode, so a bad file isn't re-read on every render
+    private static final Map<String, Long> sFailedFiles = new HashMap<>();
+    // Cities with neither a snapshot file nor legacy data, so schedule-only cities
+    // don't check the file system and prefs on every render. Cleared for a city on write.
+    private static final Set<String> sMissing = new HashSet<>();
+
+    private static final AtomicLong sParseHits = new AtomicLong();
+    private static final AtomicLong sParseMisses = new AtomicLong();
+
+    private WidgetSnapshotStore() {
+    }
+
+    /**
+     * Parse and persist new widget data, replacing the cached snapshot for its city
+     * @param context Context used to access storage
+     * @param widgetData JSON string containing widget data
+     * @return The newly cached snapshot
+     * @throws JSONException If the data is not valid widget JSON
+     */
+    public static WidgetSnapshot write(Context context, String widgetData) throws JSONException {
+        return write(context, new JSONObject(widgetData));
+    }
+
+    /**
+     * Persist widget data that is already in JSON form
+     * @param context Context used to access storage
+     * @param data Widget data object
+     * @return The newly cached snapshot
+     * @throws JSONException If the data is not valid widget JSON
+     */
+    public static WidgetSnapshot write(Context context, JSONObject data) throws JSONException {
+        synchronized (sLock) {
+            // Validate before persisting so invalid data never reaches the widgets
+            long parseStart = System.nanoTime();
+            WidgetSnapshot parsed = WidgetSnapshot.fromJson(0, data);
+            WidgetMetrics.PARSE.record(System.nanoTime() - parseStart);
+            sParseMisses.incrementAndGet();
+
+            String cityId = parsed.cityId;
+            WidgetSnapshot previous = read(context, cityId);
+            long version = (previous != null ? previous.version : 0) + 1;
+            WidgetSnapshot snapshot = withRenderModel(context, new WidgetSnapshot(version, cityId,
+                    parsed.mealType, parsed.mealDate, parsed.cityName, parsed.items));
+
+            try {
+                WidgetSnapshotFile.write(snapshotFile(context, cityId), snapshot);
+            } catch (IOException e) {
+                // Widgets in this process still get the new data from memory
+                Log.e(TAG, "Error writing widget snapshot: " + e.getMessage());
+            }
+
+            sSnapshots.put(cityId, snapshot);
+            sFailedFiles.remove(cityId);
+            sMissing.remove(cityId);
+            WidgetMetrics.markDataWritten(cityId);
+            Log.d(TAG, "Widget snapshot written for city " + cityId + ", version " + version);
+            return snapshot;
+        }
+    }
+
+    /**
+     * Get the current snapshot for a city, decoding the snapshot file only if
+     * nothing is cached for the city yet
+     * @param context Context used to access storage
+     * @param cityId City key, or null for data written without a city
+     * @return The current snapshot, or null if there is no valid data
+     */
+    public static WidgetSnapshot read(Context context, String cityId) {
+        synchronized (sLock) {
+            WidgetSnapshot snapshot = sSnapshots.get(cityId);
+            if (snapshot != null) {
+                sParseHits.incrementAndGet();
+                return snapshot;
+            }
+            if (sMissing.contains(cityId)) {
+                return null;
+            }
+
+            File file = snapshotFile(context, cityId);
+            if (!file.exists()) {
+                return migrate(context, cityId, file);
+            }
+            Long failedAt = sFailedFiles.get(cityId);
+            if (failedAt != null && failedAt == file.lastModified()) {
+                return null;
+            }
+
+            sParseMisses.incrementAndGet();
+            try {
+                long parseStart = System.nanoTime();
+                WidgetSnapshot decoded = WidgetSnapshotFile.open(file).toSnapshot();
+                WidgetMetrics.PARSE.record(System.nanoTime() - parseStart);
+                if (decoded.cityId != null && !decoded.cityId.equals(cityId)) {
+                    // Hashed file names can collide; never show another city's menu
+                    throw new IOException("Snapshot file belongs to city " + decoded.cityId);
+                }
+                // The file decides the version; the key decides the city
+                snapshot = withRenderModel(context, new WidgetSnapshot(decoded.version, cityId,
+                        decoded.mealType, decoded.mealDate, decoded.cityName, decoded.items));
+                sSnapshots.put(cityId, snapshot);
+                return snapshot;
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading widget snapshot: " + e.getMessage());
+                sFailedFiles.put(cityId, file.lastModified());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Move a city's data from the legacy SharedPreferences key into a snapshot file.
+     * Must be called while holding sLock.
+     * @return The migrated snapshot, or null if there was nothing to migrate
+     */
+    private static WidgetSnapshot migrate(Context context, String cityId, File file) {
+        SharedPreferences prefs = getPrefs(context);
+        String widgetDataJson = prefs.getString(dataKey(cityId), null);
+        if (widgetDataJson == null) {
+            sMissing.add(cityId);
+            return null;
+        }
+
+        sParseMisses.incrementAndGet();
+        try {
+            long version = prefs.getLong(versionKey(cityId), 0);
+            WidgetSnapshot parsed = WidgetSnapshot.parse(version, widgetDataJson);
+            // The key decides the city, even for legacy blobs without a cityId field
+            WidgetSnapshot snapshot = withRenderModel(context, new WidgetSnapshot(version, cityId,
+                    parsed.mealType, parsed.mealDate, parsed.cityName, parsed.items));
+            WidgetSnapshotFile.write(file, snapshot);
+            prefs.edit()
+                .remove(dataKey(cityId))
+                .remove(versionKey(cityId))
+                .apply();
+            sSnapshots.put(cityId, snapshot);
+            Log.d(TAG, "Migrated widget data for city " + cityId + " to " + file.getName());
+            return snapshot;
+        } catch (JSONException e) {
+            Log.e(TAG, "Dropping unreadable legacy widget data: " + e.getMessage());
+            prefs.edit()
+                .remove(dataKey(cityId))
+                .remove(versionKey(cityId))
+                .apply();
+            sMissing.add(cityId);
+            return null;
+        } catch (IOException e) {
+            // Keep the legacy data and try again on the next read
+            Log.e(TAG, "Error migrating widget data: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get the snapshot a widget should show right now. A week-ahead schedule that
+     * covers the widget's current meal slot wins over the single meal from setWidgetData.
+     * @param context Context used to access storage
+     * @param appWidgetId Widget whose settings decide the city and meal type
+     * @return The snapshot to render, or null if there is no valid data
+     */
+    public static WidgetSnapshot current(Context context, int appWidgetId) {
+        WidgetConfig config = WidgetConfigStore.get(context, appWidgetId);
+        String cityId = WidgetConfigStore.resolveCityId(context, config);
+
+        long now = System.currentTimeMillis();
+        return forSlot(context, cityId, MealClock.dateAt(now), config.mealTypeAt(now));
+    }
+
+    /**
+     * Get the snapshot a widget following the clock would show for a city right now
+     * @param context Context used to access storage
+     * @param cityId City key, or null for data written without a city
+     * @return The snapshot for the current meal slot, or null if there is no valid data
+     */
+    public static WidgetSnapshot currentForCity(Context context, String cityId) {
+        long now = System.currentTimeMillis();
+        return forSlot(context, cityId, MealClock.dateAt(now), MealClock.mealTypeAt(now));
+    }
+
+    /**
+     * Get the snapshot for a city's meal slot, without going through a widget.
+     * Used by intents that are shared by every widget showing the same data.
+     * @param context Context used to access storage
+     * @param cityId City key, or null for data written without a city
+     * @param mealDate Date of the meal, yyyy-MM-dd
+     * @param mealType BREAKFAST or DINNER
+     * @return The scheduled meal for the slot, else the city's latest meal, or null if there is no valid data
+     */
+    public static WidgetSnapshot forSlot(Context context, String cityId, String mealDate, String mealType) {
+        WidgetSnapshot scheduled = MealScheduleStore.snapshotAt(context, cityId, mealDate, mealType);
+        return scheduled != null ? scheduled : read(context, cityId);
+    }
+
+    /**
+     * Attach the render model so widgets only bind precomputed fields
+     */
+    static WidgetSnapshot withRenderModel(Context context, WidgetSnapshot snapshot) {
+        WidgetRenderModel.Labels labels = new WidgetRenderModel.Labels(
+            context.getString(R.string.widget_breakfast),
+            context.getString(R.string.widget_dinner),
+            context.getString(R.string.widget_more_items));
+        return snapshot.withRenderModel(WidgetRenderModel.build(labels, snapshot));
+    }
+
+    /**
+     * Get the size of a city's stored snapshot file
+     * @param context Context used to access storage
+     * @param cityId City key, or null for data written without a city
+     * @return Encoded size in bytes, or 0 if no file is stored
+     */
+    public static long getStoredSize(Context context, String cityId) {
+        return snapshotFile(context, cityId).length();
+    }
+
+    /**
+     * Number of reads served from a cached snapshot
+     */
+    public static long getParseHits() {
+        return sParseHits.get();
+    }
+
+    /**
+     * Number of times widget data had to be parsed
+     */
+    public static long getParseMisses() {
+        return sParseMisses.get();
+    }
+
+    private static File snapshotFile(Context context, String cityId) {
+        return new File(WidgetStorage.getDir(context, SNAPSHOT_DIR), cityFileName(cityId) + SNAPSHOT_SUFFIX);
+    }
+
+    // City ids are numeric; anything else is hashed so it is always a safe file name
+    static String cityFileName(String cityId) {
+        if (cityId == null) {
+            return "default";
+        } else if (cityId.matches("[A-Za-z0-9_-]{1,64}")) {
+            return "city_" + cityId;
+        } else {
+            return "city_" + Integer.toHexString(cityId.hashCode());
+        }
+    }
+
+    // The unkeyed names are kept for data written before widgets had a city
+    private static String dataKey(String cityId) {
+        return cityId == null ? WIDGET_DATA_KEY : WIDGET_DATA_KEY + "_" + cityId;
+    }
+
+    private static String versionKey(String cityId) {
+        return cityId == null ? WIDGET_DATA_VERSION_KEY : WIDGET_DATA_VERSION_KEY + "_" + cityId;
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return WidgetStorage.getPrefs(context, PREFS_NAME);
+    }
+}
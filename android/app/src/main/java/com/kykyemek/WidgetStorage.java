@@ -0,0 +1,91 @@
+package com.kykyemek;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.UserManager;
+import android.util.Log;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Widget data lives in device-protected storage so widgets can render from it
+ * before the user unlocks the device after a reboot. It only holds menus and
+ * widget settings, nothing that needs credential protection. Preferences written
+ * to credential-protected storage by older versions are moved over once, the
+ * first time they are read after an unlock.
+ */
+public final class WidgetStorage {
+    private static final String TAG = "WidgetStorage";
+
+    private static volatile Context sStorageContext;
+    // Preference files already moved (or found absent) in this process
+    private static final Set<String> sMigrated = new HashSet<>();
+
+    private WidgetStorage() {
+    }
+
+    /**
+     * Get preferences from device-protected storage, moving them out of
+     * credential-protected storage first if needed
+     * @param context Any context of the app
+     * @param name Preference file name
+     * @return Preferences readable before the first unlock
+     */
+    public static SharedPreferences getPrefs(Context context, String name) {
+        Context storage = getStorageContext(context);
+        migrate(context, storage, name);
+        return storage.getSharedPreferences(name, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Get a directory in device-protected storage, creating it if needed
+     * @param context Any context of the app
+     * @param name Directory name under the files directory
+     * @return The directory
+     */
+    public static File getDir(Context context, String name) {
+        File dir = new File(getStorageContext(context).getFilesDir(), name);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Could not create " + dir);
+        }
+        return dir;
+    }
+
+    /**
+     * Whether credential-protected storage is available, i.e. the user unlocked
+     * the device at least once since boot
+     */
+    public static boolean isUserUnlocked(Context context) {
+        UserManager userManager = context.getSystemService(UserManager.class);
+        return userManager == null || userManager.isUserUnlocked();
+    }
+
+    private static Context getStorageContext(Context context) {
+        Context storage = sStorageContext;
+        if (storage == null) {
+            Context app = context.getApplicationContext();
+            storage = app.isDeviceProtectedStorage() ? app : app.createDeviceProtectedStorageContext();
+            sStorageContext = storage;
+        }
+        return storage;
+    }
+
+    private static void migrate(Context context, Context storage, String name) {
+        synchronized (sMigrated) {
+            if (sMigrated.contains(name)) {
+                return;
+            }
+            // Credential-protected storage can't be read before the first unlock; try again later
+            if (!isUserUnlocked(context)) {
+                return;
+            }
+            if (storage.moveSharedPreferencesFrom(context.getApplicationContext(), name)) {
+                sMigrated.add(name);
+            } else {
+                Log.e(TAG, "Failed to move " + name + " to device-protected storage");
+            }
+        }
+    }
+}
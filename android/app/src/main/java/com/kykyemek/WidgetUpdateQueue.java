@@ -0,0 +1,219 @@
+package com.kykyemek;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collapses update requests into render passes for {@link WidgetUpdateScheduler}.
+ * The first request schedules a pass one coalescing window later; requests arriving
+ * before it runs are folded into it, so each widget is rendered at most once per pass.
+ * Every request bumps the widget's generation, so a render can tell whether a newer
+ * request arrived while it was being built. Plain Java, so the JVM load harness
+ * coalesces with the same code as the device.
+ */
+final class WidgetUpdateQueue {
+    private static final String TAG = "WidgetUpdateQueue";
+
+    /**
+     * Runs one render pass on the executor's thread
+     */
+    interface Renderer {
+        /**
+         * @param appWidgetIds Widgets to render
+         * @param generations Generation each widget's render belongs to
+         * @return Number of distinct configurations built
+         */
+        int render(int[] appWidgetIds, long[] generations);
+    }
+
+    private final ScheduledExecutorService executor;
+    private final long coalesceWindowMs;
+    private final Renderer renderer;
+
+    private final Object lock = new Object();
+    private final Set<Integer> pendingIds = new LinkedHashSet<>();
+    private final Set<String> pendingReasons = new LinkedHashSet<>();
+    private final List<Runnable> pendingCallbacks = new ArrayList<>();
+    private final Map<Integer, Long> generations = new HashMap<>();
+    private long nextGeneration;
+    private boolean flushScheduled;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong mergedRequests = new AtomicLong();
+    private final AtomicLong renderPasses = new AtomicLong();
+    private final AtomicLong renderedWidgets = new AtomicLong();
+    private final AtomicLong renderGroups = new AtomicLong();
+
+    /**
+     * @param executor Single thread every pass runs on, one at a time
+     * @param coalesceWindowMs How long a pass waits for more requests
+     * @param renderer Renders each pass
+     */
+    WidgetUpdateQueue(ScheduledExecutorService executor, long coalesceWindowMs, Renderer renderer) {
+        this.executor = executor;
+        this.coalesceWindowMs = coalesceWindowMs;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Request an update for specific widgets
+     * @param reason Why the update was requested
+     * @param appWidgetIds Widgets to update
+     * @param onRendered Run once the pass rendering these widgets is done, or null
+     */
+    void request(String reason, int[] appWidgetIds, Runnable onRendered) {
+        if (appWidgetIds.length == 0) {
+            Log.d(TAG, "No widgets to update for " + reason);
+            if (onRendered != null) {
+                onRendered.run();
+            }
+            return;
+        }
+
+        requests.incrementAndGet();
+        synchronized (lock) {
+            long generation = ++nextGeneration;
+            for (int appWidgetId : appWidgetIds) {
+                pendingIds.add(appWidgetId);
+                generations.put(appWidgetId, generation);
+            }
+            pendingReasons.add(reason);
+            if (onRendered != null) {
+                pendingCallbacks.add(onRendered);
+            }
+
+            if (flushScheduled) {
+                // Folded into the pass that is already pending
+                mergedRequests.incrementAndGet();
+                return;
+            }
+            flushScheduled = true;
+        }
+        executor.schedule(this::flush, coalesceWindowMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Whether the given generation is still the newest requested for the widget
+     */
+    boolean isLatestGeneration(int appWidgetId, long generation) {
+        synchronized (lock) {
+            Long latest = generations.get(appWidgetId);
+            return latest == null || latest == generation;
+        }
+    }
+
+    /**
+     * Forget removed widgets, including any update still pending for them
+     */
+    void forget(int[] appWidgetIds) {
+        synchronized (lock) {
+            for (int appWidgetId : appWidgetIds) {
+                pendingIds.remove(appWidgetId);
+                generations.remove(appWidgetId);
+            }
+        }
+    }
+
+    private void flush() {
+        int[] appWidgetIds;
+        long[] passGenerations;
+        String reasons;
+        List<Runnable> callbacks;
+        synchronized (lock) {
+            try {
+                appWidgetIds = new int[pendingIds.size()];
+                passGenerations = new long[appWidgetIds.length];
+                int i = 0;
+                for (int appWidgetId : pendingIds) {
+                    Long generation = generations.get(appWidgetId);
+                    if (generation == null) {
+                        // Removed while the request was pending
+                        continue;
+                    }
+                    appWidgetIds[i] = appWidgetId;
+                    passGenerations[i] = generation;
+                    i++;
+                }
+                if (i < appWidgetIds.length) {
+                    appWidgetIds = Arrays.copyOf(appWidgetIds, i);
+                    passGenerations = Arrays.copyOf(passGenerations, i);
+                }
+                reasons = pendingReasons.toString();
+                callbacks = new ArrayList<>(pendingCallbacks);
+                pendingIds.clear();
+                pendingReasons.clear();
+                pendingCallbacks.clear();
+            } finally {
+                // A later request must always be able to schedule the next pass
+                flushScheduled = false;
+            }
+        }
+
+        try {
+            if (appWidgetIds.length == 0) {
+                Log.d(TAG, "All widgets for " + reasons + " were removed before rendering");
+                return;
+            }
+            // Widgets sharing a layout bucket and data are rendered once and updated together
+            int groups = 0;
+            try {
+                groups = renderer.render(appWidgetIds, passGenerations);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error rendering widgets", e);
+            }
+            renderPasses.incrementAndGet();
+            renderedWidgets.addAndGet(appWidgetIds.length);
+            renderGroups.addAndGet(groups);
+            Log.d(TAG, "Rendered " + appWidgetIds.length + " widgets in " + groups + " groups for " + reasons);
+        } finally {
+            for (Runnable callback : callbacks) {
+                callback.run();
+            }
+        }
+    }
+
+    /**
+     * Number of update requests received
+     */
+    long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Number of requests merged into an already pending render pass
+     */
+    long getMergedCount() {
+        return mergedRequests.get();
+    }
+
+    /**
+     * Number of render passes run
+     */
+    long getRenderPassCount() {
+        return renderPasses.get();
+    }
+
+    /**
+     * Number of widget renders across all passes
+     */
+    long getRenderedWidgetCount() {
+        return renderedWidgets.get();
+    }
+
+    /**
+     * Number of distinct widget configurations built across all passes
+     */
+    long getRenderGroupCount() {
+        return renderGroups.get();
+    }
+}
@@ -0,0 +1,157 @@
+package com.kykyemek;
+
+import android.appwidget.AppWidgetManager;
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Process;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Single entry point for widget updates.
+ * Requests arriving within a short window are collapsed into one render pass,
+ * so each widget ID is rendered at most once per pass no matter how many
+ * broadcasts, bridge calls or alarms asked for it.
+ * Passes run on a single background render thread. Every request bumps the
+ * widget's generation, and a render only pushes its result if no newer request
+ * arrived while it was being built. The queueing itself is {@link WidgetUpdateQueue}.
+ */
+public final class WidgetUpdateScheduler {
+    private static final long COALESCE_WINDOW_MS = 250;
+
+    public static final String REASON_SYSTEM = "system";
+    public static final String REASON_JS = "js";
+    public static final String REASON_BOOT = "boot";
+    public static final String REASON_UNLOCK = "unlock";
+    public static final String REASON_CONFIGURE = "configure";
+    public static final String REASON_MEAL_BOUNDARY = "meal_boundary";
+    public static final String REASON_BROADCAST = "broadcast";
+    public static final String REASON_FETCH = "fetch";
+    public static final String REASON_RESIZE = "resize";
+    // Data request reason for widgets that rendered without data
+    public static final String REASON_NO_DATA = "no_data";
+
+    // Single writer: all renders happen on this thread, one at a time
+    private static final ScheduledExecutorService sRenderExecutor =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "widget-render");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // Kept from the latest request for the render thread
+    private static volatile Context sAppContext;
+
+    private static final WidgetUpdateQueue sQueue =
+            new WidgetUpdateQueue(sRenderExecutor, COALESCE_WINDOW_MS, WidgetUpdateScheduler::render);
+
+    private WidgetUpdateScheduler() {
+    }
+
+    /**
+     * Request an update for all placed widgets
+     * @param context Any context; the application context is kept
+     * @param reason Why the update was requested
+     */
+    public static void requestAll(Context context, String reason) {
+        request(context, reason, null);
+    }
+
+    /**
+     * Request an update for specific widgets
+     * @param context Any context; the application context is kept
+     * @param reason Why the update was requested
+     * @param appWidgetIds Widgets to update, or null for all placed widgets
+     */
+    public static void request(Context context, String reason, int[] appWidgetIds) {
+        request(context, reason, appWidgetIds, null);
+    }
+
+    /**
+     * Request an update for specific widgets on behalf of a broadcast receiver
+     * @param context Any context; the application context is kept
+     * @param reason Why the update was requested
+     * @param appWidgetIds Widgets to update, or null for all placed widgets
+     * @param pendingResult Result from goAsync(), finished once the render pass is done
+     */
+    public static void request(Context context, String reason, int[] appWidgetIds,
+                               BroadcastReceiver.PendingResult pendingResult) {
+        Context appContext = context.getApplicationContext();
+        if (appWidgetIds == null) {
+            appWidgetIds = getAllWidgetIds(appContext);
+        }
+        sAppContext = appContext;
+        sQueue.request(reason, appWidgetIds, pendingResult != null ? pendingResult::finish : null);
+    }
+
+    /**
+     * Whether the given generation is still the newest requested for the widget
+     */
+    static boolean isLatestGeneration(int appWidgetId, long generation) {
+        return sQueue.isLatestGeneration(appWidgetId, generation);
+    }
+
+    /**
+     * Forget removed widgets, including any update still pending for them
+     */
+    static void forget(int[] appWidgetIds) {
+        sQueue.forget(appWidgetIds);
+    }
+
+    private static int render(int[] appWidgetIds, long[] generations) {
+        Context context = sAppContext;
+        try {
+            return MealWidgetProvider.updateAppWidgets(
+                    context, AppWidgetManager.getInstance(context), appWidgetIds, generations);
+        } finally {
+            // Keep the next meal switch scheduled; replaces any pending alarm
+            MealBoundaryAlarm.scheduleNext(context);
+        }
+    }
+
+    static int[] getAllWidgetIds(Context context) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        return appWidgetManager.getAppWidgetIds(new ComponentName(context, MealWidgetProvider.class));
+    }
+
+    /**
+     * Number of update requests received
+     */
+    public static long getRequestCount() {
+        return sQueue.getRequestCount();
+    }
+
+    /**
+     * Number of requests merged into an already pending render pass
+     */
+    public static long getMergedCount() {
+        return sQueue.getMergedCount();
+    }
+
+    /**
+     * Number of render passes run
+     */
+    public static long getRenderPassCount() {
+        return sQueue.getRenderPassCount();
+    }
+
+    /**
+     * Number of widget renders across all passes
+     */
+    public static long getRenderedWidgetCount() {
+        return sQueue.getRenderedWidgetCount();
+    }
+
+    /**
+     * Number of distinct widget configurations built across all passes;
+     * widgets sharing a layout bucket and data count once per pass
+     */
+    public static long getRenderGroupCount() {
+        return sQueue.getRenderGroupCount();
+    }
+}
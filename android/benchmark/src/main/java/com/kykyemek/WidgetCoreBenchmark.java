@@ -0,0 +1,133 @@
+package com.kykyemek;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the work done when widget data is written and rendered:
+ * parsing the single-meal and week-ahead payloads, building render models,
+ * classifying menu items, deriving stable item ids and comparing fingerprints.
+ * The menus are real KYK breakfast and dinner lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WidgetCoreBenchmark {
+    private static final List<String> BREAKFAST_ITEMS = Arrays.asList(
+            "Mercimek Çorbası", "Haşlanmış Yumurta", "Beyaz Peynir", "Siyah Zeytin",
+            "Domates Salatalık", "Bal Tereyağı", "Çay");
+    private static final List<String> DINNER_ITEMS = Arrays.asList(
+            "Ezogelin Çorbası", "Tavuk Sote", "Bulgur Pilavı", "Mevsim Salata",
+            "Ayran", "Sütlaç");
+    private static final int SCHEDULE_DAYS = 7;
+
+    private final WidgetRenderModel.Labels labels =
+            new WidgetRenderModel.Labels("Kahvaltı", "Akşam Yemeği", "+ %1$d diğer yemek");
+
+    private String snapshotJson;
+    private String scheduleJson;
+    private WidgetSnapshot snapshot;
+    private WidgetSnapshot modelSnapshot;
+    private WidgetFingerprint previousFingerprint;
+
+    @Setup
+    public void setUp() throws JSONException {
+        JSONObject snapshotData = new JSONObject();
+        snapshotData.put("cityId", "34");
+        snapshotData.put("mealType", MealClock.DINNER);
+        snapshotData.put("mealDate", "2026-10-16");
+        snapshotData.put("cityName", "İstanbul");
+        snapshotData.put("items", new JSONArray(DINNER_ITEMS));
+        snapshotJson = snapshotData.toString();
+
+        JSONArray days = new JSONArray();
+        for (int day = 0; day < SCHEDULE_DAYS; day++) {
+            JSONObject entry = new JSONObject();
+            entry.put("date", String.format("2026-10-%02d", 16 + day));
+            entry.put("breakfast", new JSONArray(BREAKFAST_ITEMS));
+            entry.put("dinner", new JSONArray(DINNER_ITEMS));
+            days.put(entry);
+        }
+        JSONObject schedule = new JSONObject();
+        schedule.put("cityId", "34");
+        schedule.put("cityName", "İstanbul");
+        schedule.put("days", days);
+        scheduleJson = schedule.toString();
+
+        snapshot = WidgetSnapshot.parse(1, snapshotJson);
+        modelSnapshot = snapshot.withRenderModel(WidgetRenderModel.build(labels, snapshot));
+        previousFingerprint = WidgetFingerprint.of(1, true, modelSnapshot, MealCountdown.NONE);
+    }
+
+    @Benchmark
+    public WidgetSnapshot parseSnapshot() throws JSONException {
+        return WidgetSnapshot.parse(1, snapshotJson);
+    }
+
+    @Benchmark
+    public MealSchedule parseSchedule() throws JSONException {
+        return MealSchedule.parse(1, scheduleJson);
+    }
+
+    @Benchmark
+    public void scheduleSnapshots(Blackhole blackhole) throws JSONException {
+        // What MealScheduleStore.write does for a week: parse, then one snapshot per slot
+        for (WidgetSnapshot slot : MealSchedule.parse(1, scheduleJson).snapshots()) {
+            blackhole.consume(slot);
+        }
+    }
+
+    @Benchmark
+    public WidgetRenderModel buildRenderModel() {
+        return WidgetRenderModel.build(labels, snapshot);
+    }
+
+    @Benchmark
+    public void classifyBreakfast(Blackhole blackhole) {
+        for (int i = 0; i < BREAKFAST_ITEMS.size(); i++) {
+            blackhole.consume(MenuItemClassifier.classify(BREAKFAST_ITEMS.get(i), MealClock.BREAKFAST, i));
+        }
+    }
+
+    @Benchmark
+    public void classifyDinner(Blackhole blackhole) {
+        for (int i = 0; i < DINNER_ITEMS.size(); i++) {
+            blackhole.consume(MenuItemClassifier.classify(DINNER_ITEMS.get(i), MealClock.DINNER, i));
+        }
+    }
+
+    @Benchmark
+    public long[] stableItemIds() {
+        return WidgetRenderModel.stableItemIds(DINNER_ITEMS);
+    }
+
+    @Benchmark
+    public boolean fingerprintUnchanged() {
+        // The per-widget check that lets a render pass skip unchanged widgets
+        return WidgetFingerprint.of(1, true, modelSnapshot, MealCountdown.NONE).equals(previousFingerprint);
+    }
+
+    @Benchmark
+    public String formatDisplayDate() {
+        return MealDateFormatter.formatDisplayDate("2026-10-16");
+    }
+}
@@ -0,0 +1,26 @@
+package android.util;
+
+/**
+ * Stand-in for the Android logger so app classes that only log can run on the JVM.
+ * Messages are dropped.
+ */
+public final class Log {
+    private Log() {
+    }
+
+    public static int d(String tag, String msg) {
+        return 0;
+    }
+
+    public static int w(String tag, String msg) {
+        return 0;
+    }
+
+    public static int e(String tag, String msg) {
+        return 0;
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        return 0;
+    }
+}
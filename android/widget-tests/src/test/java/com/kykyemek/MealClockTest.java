@@ -0,0 +1,32 @@
+package com.kykyemek;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+
+import static org.junit.Assert.assertEquals;
+
+public class MealClockTest {
+    private static long at(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, 30);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void weekStartAtIsThatWeeksMonday() {
+        // 2026-10-12 is a Monday
+        assertEquals("2026-10-12", MealClock.dateAt(MealClock.weekStartAt(at(2026, 10, 12, 0))));
+        assertEquals("2026-10-12", MealClock.dateAt(MealClock.weekStartAt(at(2026, 10, 16, 12))));
+        assertEquals("2026-10-12", MealClock.dateAt(MealClock.weekStartAt(at(2026, 10, 18, 23))));
+        assertEquals("2026-10-19", MealClock.dateAt(MealClock.weekStartAt(at(2026, 10, 19, 8))));
+        // Across a month boundary
+        assertEquals("2026-09-28", MealClock.dateAt(MealClock.weekStartAt(at(2026, 10, 1, 8))));
+    }
+
+    @Test
+    public void weekStartAtIsMidnight() {
+        assertEquals(at(2026, 10, 12, 0) - 30 * 60 * 1000L, MealClock.weekStartAt(at(2026, 10, 15, 18)));
+    }
+}
@@ -0,0 +1,100 @@
+package com.kykyemek;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class MealScheduleFileTest {
+    private static final String SCHEDULE_JSON = "{\"cityId\":\"34\",\"cityName\":\"İstanbul\",\"days\":["
+            + "{\"date\":\"2026-10-13\",\"breakfast\":[\"Menemen\",\"Zeytin\"],\"dinner\":[\"Pilav\"]},"
+            + "{\"date\":\"2026-10-12\",\"dinner\":[\"Mercimek Çorbası\",\"Kuru Fasulye\",\"Ayran\"]}"
+            + "]}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static MealScheduleFile roundTrip(MealSchedule schedule, File file) throws IOException {
+        MealScheduleFile.write(file, MealScheduleFile.encode(schedule));
+        return MealScheduleFile.open(file);
+    }
+
+    @Test
+    public void slotsReadBackAsScheduled() throws Exception {
+        MealSchedule schedule = MealSchedule.parse(7, SCHEDULE_JSON);
+        MealScheduleFile file = roundTrip(schedule, folder.newFile("city_34.bin"));
+
+        assertEquals(7, file.getVersion());
+        assertEquals("34", file.getCityId());
+        assertEquals(3, file.getSlotCount());
+        for (WidgetSnapshot expected : schedule.snapshots()) {
+            WidgetSnapshot actual = file.snapshotFor(expected.mealDate, expected.mealType);
+            assertEquals(expected.version, actual.version);
+            assertEquals(expected.cityId, actual.cityId);
+            assertEquals(expected.cityName, actual.cityName);
+            assertEquals(expected.mealDate, actual.mealDate);
+            assertEquals(expected.mealType, actual.mealType);
+            assertEquals(expected.items, actual.items);
+        }
+        assertEquals(Arrays.asList("Mercimek Çorbası", "Kuru Fasulye", "Ayran"),
+                file.snapshotFor("2026-10-12", MealClock.DINNER).items);
+    }
+
+    @Test
+    public void uncoveredSlotIsNull() throws Exception {
+        MealScheduleFile file = MealScheduleFile.wrap(MealScheduleFile.encode(MealSchedule.parse(1, SCHEDULE_JSON)));
+
+        assertNull(file.snapshotFor("2026-10-12", MealClock.BREAKFAST));
+        assertNull(file.snapshotFor("2026-10-14", MealClock.DINNER));
+    }
+
+    @Test
+    public void missingCityNameStaysNull() throws Exception {
+        MealSchedule schedule = MealSchedule.parse(1,
+                "{\"cityId\":\"6\",\"days\":[{\"date\":\"2026-10-12\",\"breakfast\":[\"Simit\"]}]}");
+        MealScheduleFile file = MealScheduleFile.wrap(MealScheduleFile.encode(schedule));
+
+        WidgetSnapshot snapshot = file.snapshotFor("2026-10-12", MealClock.BREAKFAST);
+        assertNull(snapshot.cityName);
+        assertEquals(Collections.singletonList("Simit"), snapshot.items);
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws Exception {
+        File target = folder.newFile("city_34.bin");
+        roundTrip(MealSchedule.parse(1, SCHEDULE_JSON), target);
+        try (RandomAccessFile raf = new RandomAccessFile(target, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        try {
+            MealScheduleFile.open(target);
+            fail("Expected a truncated schedule file to be rejected");
+        } catch (IOException expected) {
+            // Bad string offset
+        }
+    }
+
+    @Test
+    public void snapshotFileIsRejected() throws Exception {
+        File target = folder.newFile("default.bin");
+        WidgetSnapshotFile.write(target, WidgetSnapshot.parse(1,
+                "{\"mealType\":\"DINNER\",\"mealDate\":\"2026-10-12\",\"items\":[\"Pilav\"]}"));
+
+        try {
+            MealScheduleFile.open(target);
+            fail("Expected a snapshot file to be rejected");
+        } catch (IOException expected) {
+            // Not a meal schedule file
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.kykyemek;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs {@link MenuApiClient} against a local HTTP server standing in for the menu API.
+ */
+public class MenuApiClientTest {
+    private static final String CITY_ID = "34";
+    private static final String START_DATE = "2026-10-12";
+    private static final String END_DATE = "2026-10-18";
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    private static final String MENUS_BODY = "["
+            + "{\"meal_date\":\"2026-10-12\",\"meal_type\":\"BREAKFAST\","
+            + "\"menu_items_text\":\"Menemen 250 kcal; Beyaz Peynir;500 ml Su;Çeyrek Ekmek\","
+            + "\"cities\":{\"id\":34,\"city_name\":\"İstanbul\"}},"
+            + "{\"meal_date\":\"2026-10-12\",\"meal_type\":\"DINNER\","
+            + "\"menu_items_text\":\"Mercimek Çorbası 120-150 Kalori;Pilav\","
+            + "\"cities\":{\"id\":34,\"city_name\":\"İstanbul\"}},"
+            + "{\"meal_date\":\"2026-10-13\",\"meal_type\":\"DINNER\","
+            + "\"menu_items_text\":\"Kuru Fasulye\","
+            + "\"cities\":{\"id\":34,\"city_name\":\"İstanbul\"}}"
+            + "]";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private final List<HttpExchange> requests = new ArrayList<>();
+    private volatile int status = 200;
+    private volatile String body = MENUS_BODY;
+    private volatile String etag;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/rest/v1/city_menus", this::respond);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        synchronized (requests) {
+            requests.add(exchange);
+        }
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    private int requestCount() {
+        synchronized (requests) {
+            return requests.size();
+        }
+    }
+
+    private HttpExchange lastRequest() {
+        synchronized (requests) {
+            return requests.get(requests.size() - 1);
+        }
+    }
+
+    @Test
+    public void fetchScheduleParsesMenuRows() throws Exception {
+        MenuApiClient client = new MenuApiClient(baseUrl(), "anon-key");
+
+        MenuApiClient.ScheduleResult result = client.fetchSchedule(CITY_ID, START_DATE, END_DATE);
+
+        assertTrue(result.changed);
+        JSONObject schedule = new JSONObject(result.scheduleData);
+        assertEquals(CITY_ID, schedule.getString("cityId"));
+        assertEquals("İstanbul", schedule.getString("cityName"));
+        JSONArray days = schedule.getJSONArray("days");
+        assertEquals(2, days.length());
+
+        JSONObject first = days.getJSONObject(0);
+        assertEquals("2026-10-12", first.getString("date"));
+        // Calorie suffixes are stripped, water and bread are dropped
+        assertEquals("[\"Menemen\",\"Beyaz Peynir\"]", first.getJSONArray("breakfast").toString());
+        assertEquals("[\"Mercimek Çorbası\",\"Pilav\"]", first.getJSONArray("dinner").toString());
+        JSONObject second = days.getJSONObject(1);
+        assertFalse(second.has("breakfast"));
+        assertEquals("[\"Kuru Fasulye\"]", second.getJSONArray("dinner").toString());
+
+        HttpExchange request = lastRequest();
+        String query = request.getRequestURI().getRawQuery();
+        assertTrue(query, query.contains("city_id=eq.34"));
+        assertTrue(query, query.contains("meal_date=gte." + START_DATE));
+        assertTrue(query, query.contains("meal_date=lte." + END_DATE));
+        assertEquals("anon-key", request.getRequestHeaders().getFirst("apikey"));
+        assertEquals("Bearer anon-key", request.getRequestHeaders().getFirst("Authorization"));
+    }
+
+    @Test
+    public void fetchScheduleWithoutMenusHasNoSchedule() throws Exception {
+        body = "[]";
+        MenuApiClient client = new MenuApiClient(baseUrl(), "anon-key");
+
+        assertNull(client.fetchSchedule(CITY_ID, START_DATE, END_DATE).scheduleData);
+    }
+
+    @Test
+    public void fetchScheduleFailsOnErrorStatus() throws Exception {
+        status = 500;
+        body = "{\"message\":\"internal error\"}";
+        MenuApiClient client = new MenuApiClient(baseUrl(), "anon-key",
+                new MenuResponseCache(folder.getRoot(), 64 * 1024));
+
+        try {
+            client.fetchSchedule(CITY_ID, START_DATE, END_DATE);
+            fail("Expected an IOException for HTTP 500");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("500"));
+        }
+        // An error body must never be cached as menus
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void fetchScheduleServesStaleAndRevalidatesWithEtag() throws Exception {
+        etag = "\"menus-v1\"";
+        MenuResponseCache cache = new MenuResponseCache(folder.getRoot(), 64 * 1024);
+        MenuApiClient client = new MenuApiClient(baseUrl(), "anon-key", cache);
+        String key = MenuResponseCache.keyFor(CITY_ID, START_DATE, END_DATE);
+        // Cached long enough ago that the client has to ask the server again
+        cache.put(key, new MenuResponseCache.Entry(MENUS_BODY, etag, null,
+                System.currentTimeMillis() - 12 * HOUR_MS));
+        long staleServed = MenuResponseCache.getStaleServedCount();
+        long revalidations = MenuResponseCache.getRevalidationCount();
+
+        MenuApiClient.ScheduleResult result = client.fetchSchedule(CITY_ID, START_DATE, END_DATE);
+
+        // The stale menus come back at once, the 304 arrives through the revalidation
+        assertFalse(result.changed);
+        assertEquals(MenuApiClient.toScheduleJson(CITY_ID, MENUS_BODY), result.scheduleData);
+        assertEquals(staleServed + 1, MenuResponseCache.getStaleServedCount());
+        assertNotNull(result.revalidation);
+        MenuApiClient.ScheduleResult revalidated = result.revalidation.get(5, TimeUnit.SECONDS);
+        assertFalse(revalidated.changed);
+        assertEquals(result.scheduleData, revalidated.scheduleData);
+        assertEquals(1, requestCount());
+        assertEquals(etag, lastRequest().getRequestHeaders().getFirst("If-None-Match"));
+        assertEquals(revalidations + 1, MenuResponseCache.getRevalidationCount());
+
+        // The 304 made the entry fresh again, so the next call doesn't ask
+        MenuApiClient.ScheduleResult cached = client.fetchSchedule(CITY_ID, START_DATE, END_DATE);
+        assertNull(cached.revalidation);
+        assertEquals(1, requestCount());
+    }
+
+    @Test
+    public void fetchScheduleRevalidationReportsChangedBody() throws Exception {
+        etag = "\"menus-v2\"";
+        MenuResponseCache cache = new MenuResponseCache(folder.getRoot(), 64 * 1024);
+        MenuApiClient client = new MenuApiClient(baseUrl(), "anon-key", cache);
+        String key = MenuResponseCache.keyFor(CITY_ID, START_DATE, END_DATE);
+        cache.put(key, new MenuResponseCache.Entry("[]", "\"menus-v1\"", null,
+                System.currentTimeMillis() - 12 * HOUR_MS));
+
+        MenuApiClient.ScheduleResult result = client.fetchSchedule(CITY_ID, START_DATE, END_DATE);
+
+        assertNull(result.scheduleData);
+        MenuApiClient.ScheduleResult revalidated = result.revalidation.get(5, TimeUnit.SECONDS);
+        assertTrue(revalidated.changed);
+        assertEquals(MenuApiClient.toScheduleJson(CITY_ID, MENUS_BODY), revalidated.scheduleData);
+        assertEquals(etag, cache.get(key).etag);
+    }
+
+    @Test
+    public void fetchScheduleRefetchesDamagedCachedBody() throws Exception {
+        etag = "\"menus-v1\"";
+        MenuResponseCache cache = new MenuResponseCache(folder.getRoot(), 64 * 1024);
+        MenuApiClient client = new MenuApiClient(baseUrl(), "anon-key", cache);
+        String key = MenuResponseCache.keyFor(CITY_ID, START_DATE, END_DATE);
+        // Fresh validators next to a body that was cut short
+        cache.put(key, new MenuResponseCache.Entry(MENUS_BODY.substring(0, 40), etag, null,
+                System.currentTimeMillis()));
+
+        MenuApiClient.ScheduleResult result = client.fetchSchedule(CITY_ID, START_DATE, END_DATE);
+
+        assertNull(result.revalidation);
+        assertTrue(result.changed);
+        assertEquals(MenuApiClient.toScheduleJson(CITY_ID, MENUS_BODY), result.scheduleData);
+        // Unconditional, so the server can't answer 304 for the damaged body
+        assertNull(lastRequest().getRequestHeaders().getFirst("If-None-Match"));
+        assertEquals(MENUS_BODY, cache.get(key).body);
+    }
+
+    @Test
+    public void fetchScheduleWaitsForNetworkWhenTooStale() throws Exception {
+        MenuResponseCache cache = new MenuResponseCache(folder.getRoot(), 64 * 1024);
+        MenuApiClient client = new MenuApiClient(baseUrl(), "anon-key", cache);
+        String key = MenuResponseCache.keyFor(CITY_ID, START_DATE, END_DATE);
+        cache.put(key, new MenuResponseCache.Entry("[]", null, null,
+                System.currentTimeMillis() - 8 * 24 * HOUR_MS));
+
+        MenuApiClient.ScheduleResult result = client.fetchSchedule(CITY_ID, START_DATE, END_DATE);
+
+        assertNull(result.revalidation);
+        assertEquals(1, requestCount());
+        assertTrue(result.changed);
+        assertEquals(MenuApiClient.toScheduleJson(CITY_ID, MENUS_BODY), result.scheduleData);
+    }
+}
@@ -0,0 +1,19 @@
+package com.kykyemek;
+
+/**
+ * Stand-in for the generated resource ids, limited to the layout buckets the
+ * metrics and list code compare against. The values only need to be distinct.
+ */
+public final class R {
+    private R() {
+    }
+
+    public static final class layout {
+        public static final int meal_widget_small = 1;
+        public static final int meal_widget_medium = 2;
+        public static final int meal_widget_large = 3;
+
+        private layout() {
+        }
+    }
+}
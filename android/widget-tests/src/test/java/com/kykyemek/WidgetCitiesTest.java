@@ -0,0 +1,69 @@
+package com.kykyemek;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class WidgetCitiesTest {
+    private static final int FOLLOWS_APP = 10;
+    private static final int OWN_CITY = 11;
+
+    private final Map<Integer, WidgetConfig> configs = new LinkedHashMap<>();
+    private String defaultCityId;
+    private WidgetCities cities;
+
+    @Before
+    public void setUp() {
+        configs.put(FOLLOWS_APP, new WidgetConfig(FOLLOWS_APP, null, WidgetConfig.MEAL_MODE_AUTO));
+        configs.put(OWN_CITY, new WidgetConfig(OWN_CITY, "34", WidgetConfig.MEAL_MODE_AUTO));
+        defaultCityId = "6";
+        cities = new WidgetCities(new WidgetCities.Source() {
+            @Override
+            public int[] getAllWidgetIds() {
+                return configs.keySet().stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            @Override
+            public WidgetConfig getConfig(int appWidgetId) {
+                return configs.get(appWidgetId);
+            }
+
+            @Override
+            public String getDefaultCityId() {
+                return defaultCityId;
+            }
+
+            @Override
+            public void putDefaultCityId(String cityId) {
+                defaultCityId = cityId;
+            }
+        });
+    }
+
+    @Test
+    public void publishingWidgetOnlyCityKeepsDefault() {
+        // What MealWidgetModule re-renders after storing a widget-only city's schedule
+        assertArrayEquals(new int[] { OWN_CITY }, cities.getWidgetIdsForCity("34"));
+
+        assertEquals("6", defaultCityId);
+        assertEquals("6", cities.resolveCityId(configs.get(FOLLOWS_APP)));
+        assertArrayEquals(new int[] { FOLLOWS_APP }, cities.getWidgetIdsForCity("6"));
+    }
+
+    @Test
+    public void settingDefaultCityMovesFollowingWidgets() {
+        assertArrayEquals(new int[] { FOLLOWS_APP }, cities.setDefaultCityId("34"));
+
+        assertEquals("34", defaultCityId);
+        assertArrayEquals(new int[] { FOLLOWS_APP, OWN_CITY }, cities.getWidgetIdsForCity("34"));
+        assertEquals(Arrays.asList("34"), cities.getWidgetCityIds());
+        // Setting the same city again re-renders nothing
+        assertArrayEquals(new int[0], cities.setDefaultCityId("34"));
+    }
+}
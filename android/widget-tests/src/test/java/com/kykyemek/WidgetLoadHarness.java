@@ -0,0 +1,476 @@
+package com.kykyemek;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives the widget pipeline under load with its own classes: dozens of simulated
+ * widgets across the small, medium and large buckets, several cities and every
+ * meal mode. Requests are coalesced by {@link WidgetUpdateQueue}, passes are
+ * rendered by {@link WidgetRenderer}, widgets resolve their city through
+ * {@link WidgetCities}, schedules are written and read through
+ * {@link MealScheduleCache} in a temporary directory, and list factories load
+ * and bind through {@link MealListItems}. Only the Android edges are stand-ins:
+ * the render host counts the AppWidgetManager calls a device would receive
+ * instead of building RemoteViews.
+ */
+final class WidgetLoadHarness implements AutoCloseable {
+    static final int FACTORY_RELOADS = 3;
+
+    private static final int[] LAYOUTS = {
+            R.layout.meal_widget_small, R.layout.meal_widget_medium, R.layout.meal_widget_large };
+    private static final String[] CITIES = { "6", "16", "34", "35" };
+    private static final String[] MEAL_MODES = {
+            WidgetConfig.MEAL_MODE_AUTO, MealClock.BREAKFAST, MealClock.DINNER };
+    private static final int SCHEDULE_DAYS = 14;
+    private static final int STORM_BURSTS = 5;
+    private static final int STORM_REQUESTS = 4;
+    // Shorter than the device's window so the scenarios run quickly; requests still arrive well within it
+    private static final long COALESCE_WINDOW_MS = 50;
+    private static final WidgetRenderModel.Labels LABELS =
+            new WidgetRenderModel.Labels("Kahvaltı", "Akşam Yemeği", "+ %1$d diğer yemek");
+
+    /**
+     * Counters for one scenario
+     */
+    static final class Result {
+        final String name;
+        final long wallNanos;
+        final Map<String, Long> counters;
+
+        Result(String name, long wallNanos, Map<String, Long> counters) {
+            this.name = name;
+            this.wallNanos = wallNanos;
+            this.counters = counters;
+        }
+
+        long get(String counter) {
+            return counters.get(counter);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder("  ").append(name)
+                    .append(": wallMs=").append(String.format("%.2f", wallNanos / 1e6));
+            for (Map.Entry<String, Long> counter : counters.entrySet()) {
+                line.append(' ').append(counter.getKey()).append('=').append(counter.getValue());
+            }
+            return line.toString();
+        }
+    }
+
+    private final File dir;
+    private final long now;
+    private final int[] appWidgetIds;
+    private final int[] layouts;
+    private final WidgetConfig[] configs;
+    private final WidgetCities cities;
+    private final ScheduledExecutorService executor;
+    private final PushHost host = new PushHost();
+    private final Queue<CountDownLatch> pending = new ConcurrentLinkedQueue<>();
+    private volatile Thread renderThread;
+
+    // Rebuilt by restart(), as in a new process
+    private MealScheduleCache schedules;
+    private WidgetRenderer renderer;
+    private WidgetUpdateQueue queue;
+
+    private final AtomicLong renderNanos = new AtomicLong();
+    private final AtomicLong updateCalls = new AtomicLong();
+    private final AtomicLong partialUpdateCalls = new AtomicLong();
+    private final AtomicLong notifyCalls = new AtomicLong();
+    private final AtomicLong dataRequests = new AtomicLong();
+    private long factoryReloads;
+    private long reloadsSkipped;
+    private long itemViewsBuilt;
+
+    /**
+     * @param dir Empty directory for the schedule files
+     * @param widgetCount Number of widgets to simulate
+     * @param now Time every render pass is planned for
+     */
+    WidgetLoadHarness(File dir, int widgetCount, long now) {
+        this.dir = dir;
+        this.now = now;
+        appWidgetIds = new int[widgetCount];
+        layouts = new int[widgetCount];
+        configs = new WidgetConfig[widgetCount];
+        for (int i = 0; i < widgetCount; i++) {
+            // Every size in every city first, then the other meal modes. The first
+            // set of widgets in the app's city follows the app instead of naming it.
+            appWidgetIds[i] = 1000 + i;
+            layouts[i] = LAYOUTS[i % LAYOUTS.length];
+            int city = (i / LAYOUTS.length) % CITIES.length;
+            String cityId = city == 0 && i < LAYOUTS.length * CITIES.length ? null : CITIES[city];
+            String mealMode = MEAL_MODES[(i / (LAYOUTS.length * CITIES.length)) % MEAL_MODES.length];
+            configs[i] = new WidgetConfig(appWidgetIds[i], cityId, mealMode);
+        }
+        cities = new WidgetCities(new WidgetCities.Source() {
+            @Override
+            public int[] getAllWidgetIds() {
+                return appWidgetIds;
+            }
+
+            @Override
+            public WidgetConfig getConfig(int appWidgetId) {
+                return configs[indexOf(appWidgetId)];
+            }
+
+            @Override
+            public String getDefaultCityId() {
+                return CITIES[0];
+            }
+
+            @Override
+            public void putDefaultCityId(String cityId) {
+                throw new UnsupportedOperationException("The harness never changes the app's city");
+            }
+        });
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "widget-render");
+            thread.setDaemon(true);
+            renderThread = thread;
+            return thread;
+        });
+        restart();
+    }
+
+    /**
+     * Write the schedules and run every scenario in order
+     * @return One result per scenario
+     */
+    List<Result> run() throws Exception {
+        for (String cityId : CITIES) {
+            writeSchedule(cityId, 0);
+        }
+
+        List<Result> results = new ArrayList<>();
+        results.add(measure("place", () -> request("system", appWidgetIds)));
+        results.add(measure("update_storm", () -> {
+            for (int burst = 0; burst < STORM_BURSTS; burst++) {
+                // Broadcasts, bridge calls and alarms asking for the same widgets at once
+                for (int request = 0; request < STORM_REQUESTS; request++) {
+                    request("system", appWidgetIds);
+                }
+                awaitRendered();
+            }
+        }));
+        results.add(measure("broadcast_storm", () -> {
+            for (int burst = 0; burst < STORM_BURSTS; burst++) {
+                // A fetch found new menus for one city, then every widget is asked to update
+                writeSchedule(CITIES[burst % CITIES.length], burst + 1);
+                request("broadcast", appWidgetIds);
+                awaitRendered();
+            }
+        }));
+
+        // A new process: nothing mapped, nothing drawn
+        restart();
+        results.add(measure("boot", () -> request("boot", appWidgetIds)));
+
+        results.add(measure("configure", () -> {
+            // Every widget's settings saved one after another, each asking for its own render
+            for (int i = 0; i < configs.length; i++) {
+                configs[i] = new WidgetConfig(appWidgetIds[i], configs[i].cityId, nextMealMode(configs[i].mealMode));
+                request("configure", new int[] { appWidgetIds[i] });
+            }
+        }));
+        results.add(measure("stale_render", () -> {
+            for (int i = 0; i < configs.length; i++) {
+                configs[i] = new WidgetConfig(appWidgetIds[i], configs[i].cityId, nextMealMode(configs[i].mealMode));
+            }
+            // The widgets are asked for again while the first pass is still building its views
+            host.duringBuild = () -> request("configure", appWidgetIds);
+            request("configure", appWidgetIds);
+        }));
+        results.add(measure("list_factory", this::runListFactories));
+        return results;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private interface Scenario {
+        void run() throws Exception;
+    }
+
+    private Result measure(String name, Scenario scenario) throws Exception {
+        Map<String, Long> before = sample();
+        long start = System.nanoTime();
+        scenario.run();
+        awaitRendered();
+        long wallNanos = System.nanoTime() - start;
+
+        Map<String, Long> counters = sample();
+        for (Map.Entry<String, Long> counter : counters.entrySet()) {
+            counter.setValue(counter.getValue() - before.get(counter.getKey()));
+        }
+        return new Result(name, wallNanos, counters);
+    }
+
+    /**
+     * Current totals of every counter; a scenario reports how much each one moved
+     */
+    private Map<String, Long> sample() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put("renderUs", renderNanos.get() / 1000);
+        counters.put("allocatedBytes", allocatedBytes(Thread.currentThread()) + allocatedBytes(renderThread));
+        counters.put("requests", queue.getRequestCount());
+        counters.put("coalescedRequests", queue.getMergedCount());
+        counters.put("renderPasses", queue.getRenderPassCount());
+        counters.put("renderGroups", queue.getRenderGroupCount());
+        counters.put("appWidgetManagerCalls", updateCalls.get() + partialUpdateCalls.get() + notifyCalls.get());
+        counters.put("reportedAppWidgetManagerCalls", WidgetMetrics.getAppWidgetManagerCalls());
+        counters.put("fullUpdates", WidgetMetrics.getFullUpdates());
+        counters.put("partialUpdates", WidgetMetrics.getPartialUpdates());
+        counters.put("skippedUpdates", WidgetMetrics.getSkippedUpdates());
+        counters.put("staleRendersDropped", WidgetMetrics.getStaleRendersDropped());
+        counters.put("dataRequests", dataRequests.get());
+        counters.put("filesOpened", schedules.getFilesOpened());
+        counters.put("slotDecodes", schedules.getSlotDecodes());
+        counters.put("slotHits", schedules.getSlotHits());
+        counters.put("factoryReloads", factoryReloads);
+        counters.put("reloadsSkipped", reloadsSkipped);
+        counters.put("getViewAtCalls", WidgetMetrics.getGetViewAtCalls());
+        counters.put("itemViewsBuilt", itemViewsBuilt);
+        return counters;
+    }
+
+    /**
+     * Start over with empty caches and nothing drawn; the schedule files stay
+     */
+    private void restart() {
+        schedules = new MealScheduleCache(new MealScheduleCache.Source() {
+            @Override
+            public File scheduleFile(String cityId) {
+                return new File(dir, "city_" + cityId + ".bin");
+            }
+
+            @Override
+            public String readLegacy(String cityId) {
+                return null;
+            }
+
+            @Override
+            public long readLegacyVersion(String cityId) {
+                return 0;
+            }
+
+            @Override
+            public void removeLegacy(String cityId) {
+            }
+
+            @Override
+            public WidgetSnapshot withRenderModel(WidgetSnapshot snapshot) {
+                return snapshot.withRenderModel(WidgetRenderModel.build(LABELS, snapshot));
+            }
+        });
+        renderer = new WidgetRenderer(false, R.layout.meal_widget_small);
+        queue = new WidgetUpdateQueue(executor, COALESCE_WINDOW_MS, (ids, generations) -> {
+            long start = System.nanoTime();
+            try {
+                return renderer.render(host, ids, generations, now);
+            } finally {
+                renderNanos.addAndGet(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private void request(String reason, int[] ids) {
+        CountDownLatch rendered = new CountDownLatch(1);
+        pending.add(rendered);
+        queue.request(reason, ids, rendered::countDown);
+    }
+
+    /**
+     * Wait for every requested pass, including passes requested while rendering
+     */
+    private void awaitRendered() throws InterruptedException {
+        CountDownLatch rendered;
+        while ((rendered = pending.poll()) != null) {
+            if (!rendered.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Render pass did not finish");
+            }
+        }
+    }
+
+    /**
+     * Create, bind and reload one list factory per distinct list, as the launcher
+     * does for MealRemoteViewsFactory
+     */
+    private void runListFactories() {
+        MealListItems.Views<String> views = new MealListItems.Views<String>() {
+            @Override
+            public WidgetRenderModel modelOf(WidgetSnapshot snapshot) {
+                return snapshot.renderModel;
+            }
+
+            @Override
+            public String build(WidgetRenderModel model, int position, String item) {
+                itemViewsBuilt++;
+                return item;
+            }
+        };
+
+        Set<String> lists = new HashSet<>();
+        for (int i = 0; i < configs.length; i++) {
+            if (layouts[i] == R.layout.meal_widget_small) {
+                continue;
+            }
+            String cityId = cities.resolveCityId(configs[i]);
+            String mealType = configs[i].mealTypeAt(now);
+            if (!lists.add(cityId + "|" + mealType + "|" + layouts[i])) {
+                continue;
+            }
+
+            MealListItems<String> items = new MealListItems<>(layouts[i] == R.layout.meal_widget_medium, views);
+            items.load(schedules.snapshotAt(cityId, MealClock.dateAt(now), mealType));
+            bindRows(items);
+            for (int reload = 0; reload < FACTORY_RELOADS; reload++) {
+                factoryReloads++;
+                if (!items.load(schedules.snapshotAt(cityId, MealClock.dateAt(now), mealType))) {
+                    reloadsSkipped++;
+                }
+                bindRows(items);
+            }
+        }
+    }
+
+    // What the launcher asks for after each load
+    private static void bindRows(MealListItems<String> items) {
+        for (int position = 0; position < items.getCount(); position++) {
+            items.getItemId(position);
+            items.getViewAt(position);
+        }
+    }
+
+    /**
+     * Write a city's schedule from today on through the store's write path
+     * @param variant Changes every item, so each variant is a different menu
+     */
+    private void writeSchedule(String cityId, int variant) throws JSONException {
+        JSONArray days = new JSONArray();
+        for (int day = 0; day < SCHEDULE_DAYS; day++) {
+            days.put(new JSONObject()
+                    .put("date", MealClock.dateAfterDays(now, day))
+                    .put("breakfast", menu(new String[] { "Menemen", "Beyaz Peynir", "Zeytin", "Domates" }, day, variant))
+                    .put("dinner", menu(new String[] {
+                            "Mercimek Çorbası", "Tavuk Sote", "Pilav", "Cacık", "Sütlaç" }, day, variant)));
+        }
+        schedules.write(new JSONObject()
+                .put("cityId", cityId)
+                .put("cityName", "Şehir " + cityId)
+                .put("days", days));
+    }
+
+    private static JSONArray menu(String[] items, int day, int variant) {
+        JSONArray menu = new JSONArray();
+        for (String item : items) {
+            menu.put(variant == 0 ? item + " " + day : item + " " + day + "/" + variant);
+        }
+        return menu;
+    }
+
+    private int indexOf(int appWidgetId) {
+        return appWidgetId - appWidgetIds[0];
+    }
+
+    private static String nextMealMode(String mealMode) {
+        for (int i = 0; i < MEAL_MODES.length; i++) {
+            if (MEAL_MODES[i].equals(mealMode)) {
+                return MEAL_MODES[(i + 1) % MEAL_MODES.length];
+            }
+        }
+        return WidgetConfig.MEAL_MODE_AUTO;
+    }
+
+    private static long allocatedBytes(Thread thread) {
+        // HotSpot only; reports 0 allocations elsewhere
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (thread != null && threads instanceof com.sun.management.ThreadMXBean) {
+            return Math.max(0, ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(thread.getId()));
+        }
+        return 0;
+    }
+
+    /**
+     * Stands in for the AppWidgetManager: reads widgets through the harness's stores
+     * and counts the calls a device would receive. A group's "views" are the group itself.
+     */
+    private final class PushHost implements WidgetRenderer.Host<WidgetRenderPlan.Group> {
+        // Run once, while the next group's views are being built
+        volatile Runnable duringBuild;
+
+        @Override
+        public WidgetSnapshot snapshotFor(int appWidgetId) {
+            WidgetConfig config = configs[indexOf(appWidgetId)];
+            String cityId = cities.resolveCityId(config);
+            return cityId != null
+                    ? schedules.snapshotAt(cityId, MealClock.dateAt(now), config.mealTypeAt(now)) : null;
+        }
+
+        @Override
+        public int layoutFor(int appWidgetId) {
+            return layouts[indexOf(appWidgetId)];
+        }
+
+        @Override
+        public boolean isLatestGeneration(int appWidgetId, long generation) {
+            return queue.isLatestGeneration(appWidgetId, generation);
+        }
+
+        @Override
+        public void requestData(int[] appWidgetIds) {
+            dataRequests.incrementAndGet();
+        }
+
+        @Override
+        public WidgetRenderPlan.Group buildViews(WidgetRenderPlan.Group group) {
+            Runnable hook = duringBuild;
+            if (hook != null) {
+                duringBuild = null;
+                hook.run();
+            }
+            return group;
+        }
+
+        @Override
+        public void updateAppWidget(int[] appWidgetIds, WidgetRenderPlan.Group views) {
+            updateCalls.incrementAndGet();
+        }
+
+        @Override
+        public void partiallyUpdateAppWidget(int[] appWidgetIds, WidgetRenderPlan.Group views) {
+            partialUpdateCalls.incrementAndGet();
+        }
+
+        @Override
+        public void notifyItemsChanged(int[] appWidgetIds) {
+            notifyCalls.incrementAndGet();
+        }
+
+        @Override
+        public void onPushed(WidgetRenderPlan.Group group) {
+        }
+    }
+}
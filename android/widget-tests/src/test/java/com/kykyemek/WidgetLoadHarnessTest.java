@@ -0,0 +1,88 @@
+package com.kykyemek;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link WidgetLoadHarness} and checks what each scenario must cost. To print
+ * the report for comparing runs: mvn -B test -Dtest=WidgetLoadHarnessTest -Dwidget.harness.report=true
+ */
+public class WidgetLoadHarnessTest {
+    private static final int WIDGET_COUNT = 48;
+    private static final int CITY_COUNT = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void scenariosStayWithinBudget() throws Exception {
+        List<WidgetLoadHarness.Result> results;
+        try (WidgetLoadHarness harness =
+                     new WidgetLoadHarness(folder.getRoot(), WIDGET_COUNT, System.currentTimeMillis())) {
+            results = harness.run();
+        }
+
+        Map<String, WidgetLoadHarness.Result> byName = new HashMap<>();
+        boolean report = Boolean.getBoolean("widget.harness.report");
+        if (report) {
+            System.out.println("Widget load harness, " + WIDGET_COUNT + " widgets:");
+        }
+        for (WidgetLoadHarness.Result result : results) {
+            if (report) {
+                System.out.println(result);
+            }
+            byName.put(result.name, result);
+            // The renderer's own metric matches the calls that were actually made
+            assertEquals(result.toString(),
+                    result.get("appWidgetManagerCalls"), result.get("reportedAppWidgetManagerCalls"));
+        }
+
+        WidgetLoadHarness.Result place = byName.get("place");
+        assertEquals(WIDGET_COUNT, place.get("fullUpdates"));
+        assertEquals(0, place.get("skippedUpdates"));
+        // One push per distinct configuration, not per widget
+        assertTrue(place.toString(), place.get("appWidgetManagerCalls") < WIDGET_COUNT);
+
+        // Nothing changed, so a storm renders nothing, and each burst is folded into few passes
+        WidgetLoadHarness.Result updateStorm = byName.get("update_storm");
+        assertEquals(0, updateStorm.get("appWidgetManagerCalls"));
+        assertEquals(0, updateStorm.get("slotDecodes"));
+        assertTrue(updateStorm.toString(), updateStorm.get("coalescedRequests") > 0);
+        assertTrue(updateStorm.toString(), updateStorm.get("renderPasses") < updateStorm.get("requests"));
+
+        // New items under the same header only patch the lists
+        WidgetLoadHarness.Result broadcastStorm = byName.get("broadcast_storm");
+        assertTrue(broadcastStorm.toString(), broadcastStorm.get("partialUpdates") > 0);
+        assertEquals(0, broadcastStorm.get("fullUpdates"));
+
+        WidgetLoadHarness.Result boot = byName.get("boot");
+        assertEquals(CITY_COUNT, boot.get("filesOpened"));
+        assertEquals(WIDGET_COUNT, boot.get("fullUpdates"));
+
+        // One request per widget, rendered together
+        WidgetLoadHarness.Result configure = byName.get("configure");
+        assertEquals(WIDGET_COUNT, configure.get("requests"));
+        assertTrue(configure.toString(), configure.get("renderPasses") < WIDGET_COUNT);
+        assertTrue(configure.toString(), configure.get("coalescedRequests") > 0);
+
+        // Renders overtaken by a newer request are dropped, then pushed once by the next pass
+        WidgetLoadHarness.Result staleRender = byName.get("stale_render");
+        assertTrue(staleRender.toString(), staleRender.get("staleRendersDropped") > 0);
+        assertEquals(staleRender.get("staleRendersDropped"), staleRender.get("fullUpdates"));
+
+        WidgetLoadHarness.Result listFactory = byName.get("list_factory");
+        assertTrue(listFactory.toString(), listFactory.get("itemViewsBuilt") > 0);
+        // Reloads with an unchanged snapshot keep the rows and views they have
+        assertEquals(listFactory.get("factoryReloads"), listFactory.get("reloadsSkipped"));
+        assertEquals(listFactory.toString(), (WidgetLoadHarness.FACTORY_RELOADS + 1) * listFactory.get("itemViewsBuilt"),
+                listFactory.get("getViewAtCalls"));
+    }
+}
@@ -30,6 +30,11 @@ import { supabase } from "../lib/supabase";
 import AsyncStorage from "@react-native-async-storage/async-storage";
 import { WidgetManager } from "./widgets/WidgetManager";
 import { UPDATE_INTERVALS } from "./widgets/utils/widgetConstants";
+import {
+  WidgetLaunch,
+  setWidgetLaunch,
+  setupWidgetLaunchListener,
+} from "./widgets/utils/widgetLaunch";
 
 // Component to handle StatusBar style based on color scheme
 function ThemeAwareStatusBar() {
@@ -273,9 +278,19 @@ function RootNavigator() {
 }
 
 // Main application wrapper with all providers
-export default function App() {
+export default function App({ widgetLaunch }: { widgetLaunch?: WidgetLaunch }) {
   const navigationRef = useRef(null);
 
+  // Set when the app was opened by tapping a widget; read by the meal screen's first render
+  const launchHandled = useRef(false);
+  if (!launchHandled.current) {
+    launchHandled.current = true;
+    setWidgetLaunch(widgetLaunch);
+  }
+
+  // Widget taps while the app is already running arrive as events
+  useEffect(() => setupWidgetLaunchListener(), []);
+
   return (
     <SafeAreaProvider>
       <ThemeProvider>
@@ -1,10 +1,15 @@
-import { useState, useEffect, useCallback } from "react";
+import { useState, useEffect, useCallback, useRef } from "react";
 import { format, addDays, startOfWeek, isSameDay } from "date-fns";
 import { tr } from "date-fns/locale";
 import { useUserPreferences } from "./useUserPreferences";
 import AsyncStorage from "@react-native-async-storage/async-storage";
 import { useAuth } from "./useAuth";
 import { mealService } from "../../lib/services/mealService";
+import {
+  consumeWidgetLaunchMeals,
+  getWidgetLaunchMeals,
+  subscribeWidgetLaunch,
+} from "../widgets/utils/widgetLaunch";
 
 // Define interfaces for meal data
 export interface MealItem {
@@ -44,15 +49,21 @@ export const useMeals = () => {
   const { selectedCityId } = useUserPreferences();
   const { user } = useAuth();
 
+  // Meals from the widget that opened the app, shown until the first fetch finishes
+  const [launchMeals] = useState(consumeWidgetLaunchMeals);
+  const showingLaunchMeals = useRef(launchMeals !== null);
+  // City of the widget meals on screen; preferences may still be loading when they're shown
+  const launchCityId = useRef(launchMeals?.cityId ?? null);
+
   const [todayMeals, setTodayMeals] = useState<{
     breakfast: Meal | null;
     dinner: Meal | null;
   }>({
-    breakfast: null,
-    dinner: null,
+    breakfast: launchMeals?.breakfast ?? null,
+    dinner: launchMeals?.dinner ?? null,
   });
   const [weeklyMeals, setWeeklyMeals] = useState<DailyMeals[]>([]);
-  const [isLoading, setIsLoading] = useState(true);
+  const [isLoading, setIsLoading] = useState(launchMeals === null);
   const [error, setError] = useState<string | null>(null);
 
   // Function to fetch a meal's ratings
@@ -288,12 +299,24 @@ export const useMeals = () => {
   // Fetch today's meals
   const fetchTodayMeals = useCallback(async () => {
     if (!selectedCityId) {
+      // Preferences are still loading; keep the widget's meals on screen
+      if (showingLaunchMeals.current) return;
       setTodayMeals({ breakfast: null, dinner: null });
       setError("Lütfen bir şehir seçin");
       return;
     }
 
-    setIsLoading(true);
+    // A widget set to another city opened the app: its meals don't belong under this city
+    if (
+      showingLaunchMeals.current &&
+      launchCityId.current !== String(selectedCityId)
+    ) {
+      showingLaunchMeals.current = false;
+      setTodayMeals({ breakfast: null, dinner: null });
+    }
+
+    // Revalidate in the background while the widget's meals are shown
+    if (!showingLaunchMeals.current) setIsLoading(true);
     setError(null);
 
     try {
@@ -316,6 +339,7 @@ export const useMeals = () => {
         breakfast: processedBreakfast,
         dinner: processedDinner,
       });
+      showingLaunchMeals.current = false;
     } catch (err) {
       console.error("Error fetching today's meals:", err);
       setError("Yemek bilgileri alınamadı. Lütfen tekrar deneyin.");
@@ -331,7 +355,7 @@ export const useMeals = () => {
       return;
     }
 
-    setIsLoading(true);
+    if (!showingLaunchMeals.current) setIsLoading(true);
     setError(null);
 
     try {
@@ -393,6 +417,37 @@ export const useMeals = () => {
     fetchWeeklyMeals();
   }, [fetchTodayMeals, fetchWeeklyMeals]);
 
+  // A widget tapped while the app runs: show its meal if ours is missing or from
+  // another day (e.g. the app sat in the background overnight), then refetch.
+  // A widget set to another city than the app's only triggers the refetch.
+  useEffect(
+    () =>
+      subscribeWidgetLaunch((launch) => {
+        const launchMeals = getWidgetLaunchMeals(launch);
+        if (
+          launchMeals &&
+          selectedCityId &&
+          launchMeals.cityId === String(selectedCityId)
+        ) {
+          setTodayMeals((current) => {
+            const pick = (shown: Meal | null, fromWidget: Meal | null) =>
+              fromWidget &&
+              (!shown || shown.meal_date !== fromWidget.meal_date)
+                ? fromWidget
+                : shown;
+            return {
+              breakfast: pick(current.breakfast, launchMeals.breakfast),
+              dinner: pick(current.dinner, launchMeals.dinner),
+            };
+          });
+          showingLaunchMeals.current = true;
+          launchCityId.current = launchMeals.cityId;
+        }
+        fetchTodayMeals();
+      }),
+    [fetchTodayMeals, selectedCityId]
+  );
+
   // Helper function to check if a date is today
   const isToday = useCallback((date: Date) => {
     const today = new Date();
@@ -1,6 +1,6 @@
 import AsyncStorage from "@react-native-async-storage/async-storage";
 import { Platform, NativeModules, DeviceEventEmitter } from "react-native";
-import { format } from "date-fns";
+import { format, addDays } from "date-fns";
 import { tr } from "date-fns/locale";
 import { mealService } from "../../lib/services/mealService";
 import {
@@ -11,6 +11,10 @@ import {
   STORAGE_KEYS,
   MEAL_TIME_RANGES,
 } from "../widgets/utils/widgetConstants";
+import {
+  isPublishedScheduleCurrent,
+  rememberPublishedSchedule,
+} from "../widgets/utils/widgetSnapshot";
 import api from "./api";
 
 // Define interfaces for meal data
@@ -48,6 +52,9 @@ interface LegacyWidgetMeal {
 // Define TTL for meal cache in milliseconds (30 minutes)
 const MEAL_CACHE_TTL = 30 * 60 * 1000;
 
+// Number of days pushed to the native widget schedule
+const WIDGET_SCHEDULE_DAYS = 7;
+
 // Widget storage key in AsyncStorage
 const WIDGET_DATA_KEY = "kyk_yemek_widget_data";
 const MEAL_CACHE_KEY = "kyk_yemek_meal_cache";
@@ -362,6 +369,92 @@ const WidgetService = {
     }
   },
 
+  /**
+   * Record the city selected in the app, which widgets without their own city follow.
+   * Only the app's city selection calls this; schedules published for a widget's
+   * own city leave it alone
+   * @param cityId The ID of the selected city
+   */
+  async setAppCity(cityId: number): Promise<void> {
+    if (Platform.OS !== "android" || !NativeModules.MealWidgetModule) {
+      return;
+    }
+
+    try {
+      await NativeModules.MealWidgetModule.setDefaultCity(String(cityId));
+    } catch (error) {
+      console.error("Failed to set the widgets' app city:", error);
+    }
+  },
+
+  /**
+   * Push a week-ahead breakfast/dinner schedule to the native widget store
+   * so Android widgets can switch meals at 11:00 and midnight on their own
+   * @param cityId The ID of the selected city
+   */
+  async prepareWidgetSchedule(cityId: number): Promise<void> {
+    if (Platform.OS !== "android" || !NativeModules.MealWidgetModule) {
+      return;
+    }
+
+    try {
+      const now = new Date();
+      const startDate = format(now, "yyyy-MM-dd");
+      const endDate = format(
+        addDays(now, WIDGET_SCHEDULE_DAYS - 1),
+        "yyyy-MM-dd"
+      );
+
+      // The widgets already show today's schedule: skip the fetch and the native write
+      if (await isPublishedScheduleCurrent(String(cityId), startDate)) {
+        console.log("Widget schedule is current, skipping fetch");
+        return;
+      }
+
+      const meals: MealData[] = await mealService.getWeeklyMeals(
+        startDate,
+        endDate,
+        cityId
+      );
+
+      // Group breakfast and dinner items by date
+      const days: {
+        [date: string]: { date: string; breakfast: string[]; dinner: string[] };
+      } = {};
+      let cityName: string | null = null;
+
+      for (const meal of meals) {
+        if (!days[meal.meal_date]) {
+          days[meal.meal_date] = {
+            date: meal.meal_date,
+            breakfast: [],
+            dinner: [],
+          };
+        }
+        const items = meal.items?.map((item: MenuItem) => item.item_name) || [];
+        if (meal.meal_type === "BREAKFAST") {
+          days[meal.meal_date].breakfast = items;
+        } else {
+          days[meal.meal_date].dinner = items;
+        }
+        cityName = cityName || meal.city_name || null;
+      }
+
+      // One bridge call stores the schedule and queues the widget update
+      const result = await NativeModules.MealWidgetModule.publishWidgetData({
+        cityId: String(cityId),
+        cityName,
+        days: Object.values(days),
+      });
+      await rememberPublishedSchedule(String(cityId), startDate, result.version);
+      console.log(
+        `Widget schedule pushed to native storage (${result.bytesWritten} bytes, ${result.elapsedMs.toFixed(1)} ms)`
+      );
+    } catch (error) {
+      console.error("Failed to prepare widget schedule:", error);
+    }
+  },
+
   /**
    * Updates Android widgets by sending a broadcast
    */
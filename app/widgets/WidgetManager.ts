@@ -42,6 +42,9 @@ export const WidgetManager: WidgetManagerInterface = {
         return;
       }
 
+      // Widgets without their own city follow the app's
+      await WidgetService.setAppCity(cityId);
+
       // Prepare initial widget data
       await WidgetService.prepareWidgetData(cityId);
 
@@ -62,9 +65,11 @@ export const WidgetManager: WidgetManagerInterface = {
     try {
       await WidgetService.prepareWidgetData(cityId);
 
-      // If on Android, trigger native widget update
+      // If on Android, record the app's city and push the week ahead; the
+      // native side then updates only the widgets showing this city
       if (Platform.OS === "android" && NativeModules.MealWidgetModule) {
-        await NativeModules.MealWidgetModule.updateWidgets();
+        await WidgetService.setAppCity(cityId);
+        await WidgetService.prepareWidgetSchedule(cityId);
       }
       // If on iOS, trigger native widget update
       else if (Platform.OS === "ios" && NativeModules.MealWidgetService) {
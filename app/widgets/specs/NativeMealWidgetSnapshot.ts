@@ -0,0 +1,26 @@
+import type { TurboModule } from "react-native";
+import { TurboModuleRegistry } from "react-native";
+
+/**
+ * Snapshot of the meal a city's widgets show, as stored natively
+ */
+export type NativeWidgetSnapshot = {
+  version: number;
+  cityId: string | null;
+  cityName: string | null;
+  mealType: string;
+  mealDate: string;
+  items: string[];
+};
+
+/**
+ * Codegen spec for the MealWidgetSnapshot TurboModule (Android, new architecture only).
+ * Both reads are synchronous JSI calls served from the native snapshot cache.
+ */
+export interface Spec extends TurboModule {
+  getWidgetSnapshot(cityId: string | null): NativeWidgetSnapshot | null;
+  getSnapshotVersion(cityId: string | null): number;
+  getScheduleVersion(cityId: string | null): number;
+}
+
+export default TurboModuleRegistry.get<Spec>("MealWidgetSnapshot");
@@ -6,6 +6,7 @@
 export const STORAGE_KEYS = {
   WIDGET_DATA: "kyk_yemek_widget_data",
   LAST_UPDATE: "kyk_yemek_widget_last_update",
+  PUBLISHED_SCHEDULE: "kyk_yemek_widget_published_schedule",
 };
 
 // Update intervals (in milliseconds)
@@ -1,7 +1,27 @@
 import AsyncStorage from "@react-native-async-storage/async-storage";
 import { Platform, NativeModules } from "react-native";
+import NativeMealWidgetSnapshot from "../specs/NativeMealWidgetSnapshot";
 import { STORAGE_KEYS } from "./widgetConstants";
 
+/**
+ * Per-call latency in milliseconds
+ */
+export interface LatencyStats {
+  calls: number;
+  meanMs: number;
+  p50Ms: number;
+  p95Ms: number;
+  maxMs: number;
+}
+
+/**
+ * Result of benchmarkSnapshotReads; turboModule is null on old architecture builds
+ */
+export interface SnapshotReadBenchmark {
+  turboModule: LatencyStats | null;
+  legacyModule: LatencyStats;
+}
+
 /**
  * Log the current widget data stored in AsyncStorage
  * Useful for debugging widget issues
@@ -92,3 +112,93 @@ export async function forceUpdateWidgets(): Promise<void> {
     console.error("Error forcing widget update:", error);
   }
 }
+
+/**
+ * Log native widget pipeline metrics (render latency, parse time, update counts)
+ * Android only; the same numbers are available from
+ * `adb shell dumpsys activity service com.kykyemek/.MealWidgetService`
+ */
+export async function logWidgetMetrics(): Promise<Record<string, unknown> | null> {
+  if (Platform.OS !== "android" || !NativeModules.MealWidgetModule) {
+    console.log("Widget metrics are not available on this platform");
+    return null;
+  }
+
+  try {
+    const metrics = await NativeModules.MealWidgetModule.getWidgetMetrics();
+    console.log("====== WIDGET METRICS ======");
+    console.log(JSON.stringify(metrics, null, 2));
+    console.log("============================");
+    return metrics;
+  } catch (error) {
+    console.error("Error getting widget metrics:", error);
+    return null;
+  }
+}
+
+/**
+ * Compare the call latency of the synchronous MealWidgetSnapshot TurboModule
+ * with the legacy MealWidgetModule's promise-based read of the same version (Android only).
+ * Both read the native snapshot cache, so the difference is the cost of the call itself.
+ * @param cityId City whose snapshot version is read
+ * @param iterations Number of calls per module
+ */
+export async function benchmarkSnapshotReads(
+  cityId: string | null,
+  iterations = 200
+): Promise<SnapshotReadBenchmark | null> {
+  if (Platform.OS !== "android" || !NativeModules.MealWidgetModule) {
+    console.log("Snapshot read benchmark is not available on this platform");
+    return null;
+  }
+  const legacyModule = NativeModules.MealWidgetModule;
+
+  try {
+    let turboModule: LatencyStats | null = null;
+    if (NativeMealWidgetSnapshot) {
+      const snapshotModule = NativeMealWidgetSnapshot;
+      // Warm up so the first call doesn't include module creation
+      snapshotModule.getSnapshotVersion(cityId);
+      const samples: number[] = [];
+      for (let i = 0; i < iterations; i++) {
+        const start = performance.now();
+        snapshotModule.getSnapshotVersion(cityId);
+        samples.push(performance.now() - start);
+      }
+      turboModule = summarizeLatency(samples);
+    }
+
+    await legacyModule.getSnapshotVersion(cityId);
+    const samples: number[] = [];
+    for (let i = 0; i < iterations; i++) {
+      const start = performance.now();
+      await legacyModule.getSnapshotVersion(cityId);
+      samples.push(performance.now() - start);
+    }
+
+    const result: SnapshotReadBenchmark = {
+      turboModule,
+      legacyModule: summarizeLatency(samples),
+    };
+    console.log("====== SNAPSHOT READ BENCHMARK ======");
+    console.log(JSON.stringify(result, null, 2));
+    console.log("=====================================");
+    return result;
+  } catch (error) {
+    console.error("Error benchmarking snapshot reads:", error);
+    return null;
+  }
+}
+
+function summarizeLatency(samples: number[]): LatencyStats {
+  const sorted = [...samples].sort((a, b) => a - b);
+  const percentile = (p: number) =>
+    sorted[Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+  return {
+    calls: sorted.length,
+    meanMs: sorted.reduce((sum, value) => sum + value, 0) / sorted.length,
+    p50Ms: percentile(0.5),
+    p95Ms: percentile(0.95),
+    maxMs: sorted[sorted.length - 1],
+  };
+}
@@ -1,8 +1,69 @@
 import { Platform, DeviceEventEmitter, NativeModules } from "react-native";
 import AsyncStorage from "@react-native-async-storage/async-storage";
+import WidgetService from "../../services/widgetService";
 import { updateWidget } from "./updateWidget";
 import { STORAGE_KEYS } from "./widgetConstants";
 
+/**
+ * Widget data requests queued natively, delivered as one onWidgetDataRequest event
+ */
+export interface WidgetDataRequestBatch {
+  action: "dataRequest";
+  batchId: number;
+  /** Collapsed requests, one per reason */
+  requests: { reason: string; widgetIds: number[]; requestedAt: number }[];
+  /** Every widget named by any request in the batch */
+  widgetIds: number[];
+}
+
+/**
+ * Get the app's selected city from the stored preferences
+ */
+async function getSelectedCityId(): Promise<string | null> {
+  const userPref = await AsyncStorage.getItem("userPreferences");
+  if (!userPref) {
+    return null;
+  }
+  const { selectedCityId } = JSON.parse(userPref);
+  return selectedCityId ? String(selectedCityId) : null;
+}
+
+/**
+ * Resolve the distinct cities a batch of data requests needs. A widget can be
+ * set to another city than the app's, so each widget's city is looked up natively.
+ * Widgets that follow the app before it wrote a city, and requests without
+ * widgets, get the app's selected city.
+ * @param event Batch from onWidgetDataRequest
+ * @returns City ids, each listed once
+ */
+async function getRequestedCityIds(
+  event: WidgetDataRequestBatch
+): Promise<string[]> {
+  const resolved: (string | null)[] =
+    event.widgetIds.length > 0
+      ? await NativeModules.MealWidgetModule.getWidgetCityIds(event.widgetIds)
+      : [];
+  if (event.requests.some((request) => request.widgetIds.length === 0)) {
+    resolved.push(null);
+  }
+
+  const cityIds = new Set<string>();
+  let selectedCityId: string | null | undefined;
+  for (const cityId of resolved) {
+    if (cityId !== null) {
+      cityIds.add(cityId);
+      continue;
+    }
+    if (selectedCityId === undefined) {
+      selectedCityId = await getSelectedCityId();
+    }
+    if (selectedCityId) {
+      cityIds.add(selectedCityId);
+    }
+  }
+  return [...cityIds];
+}
+
 /**
  * Sets up listeners for widget-related events
  * @returns Function to clean up listeners
@@ -10,27 +71,34 @@ import { STORAGE_KEYS } from "./widgetConstants";
 export function setupWidgetEventListeners(): () => void {
   const listeners: { remove: () => void }[] = [];
 
-  // Listen for widget data requests from Android
-  if (Platform.OS === "android") {
+  // Listen for widget data requests from Android. Native queues requests while
+  // React Native isn't running and delivers them as one batch; the next batch
+  // is only sent after this one is acknowledged.
+  if (Platform.OS === "android" && NativeModules.MealWidgetModule) {
     const listener = DeviceEventEmitter.addListener(
       "onWidgetDataRequest",
-      async (event) => {
+      async (event: WidgetDataRequestBatch) => {
         try {
-          // Get city ID from user preferences
-          const userPref = await AsyncStorage.getItem("userPreferences");
-          if (userPref) {
-            const { selectedCityId } = JSON.parse(userPref);
-            if (selectedCityId) {
-              await updateWidget(selectedCityId);
-            }
+          // Each city shown by a requesting widget is refreshed once, whatever the
+          // number of requests naming it. The schedule refresh skips cities whose
+          // widgets already have today's schedule, so no daily gate is needed here.
+          for (const cityId of await getRequestedCityIds(event)) {
+            await WidgetService.prepareWidgetSchedule(Number(cityId));
           }
         } catch (error) {
           console.error("Error handling widget data request:", error);
+        } finally {
+          NativeModules.MealWidgetModule.completeWidgetDataRequests(
+            event.batchId
+          );
         }
       }
     );
 
     listeners.push(listener);
+
+    // Deliver anything queued before this listener existed
+    NativeModules.MealWidgetModule.flushWidgetDataRequests();
   }
 
   // Return cleanup function
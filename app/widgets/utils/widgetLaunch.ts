@@ -0,0 +1,139 @@
+import { DeviceEventEmitter, NativeModules, Platform } from "react-native";
+import { format } from "date-fns";
+import type { Meal } from "../../hooks/useMeals";
+
+/**
+ * Snapshot of the meal a widget was showing, passed by MainActivity as an initial prop
+ */
+export interface WidgetLaunchSnapshot {
+  version: number;
+  cityId: string | null;
+  cityName: string | null;
+  mealType: "BREAKFAST" | "DINNER";
+  mealDate: string;
+  items: string[];
+}
+
+/**
+ * Initial prop set when the app is opened by tapping a widget (Android only)
+ */
+export interface WidgetLaunch {
+  cityId: string | null;
+  mealDate: string | null;
+  mealType: string | null;
+  snapshot?: WidgetLaunchSnapshot;
+}
+
+/**
+ * Today's meals taken from a widget launch snapshot
+ */
+export interface WidgetLaunchMeals {
+  /** City the widget shows; it can differ from the city selected in the app */
+  cityId: string | null;
+  breakfast: Meal | null;
+  dinner: Meal | null;
+}
+
+type WidgetLaunchListener = (launch: WidgetLaunch) => void;
+
+let pendingLaunch: WidgetLaunch | null = null;
+const launchListeners = new Set<WidgetLaunchListener>();
+
+/**
+ * Remember the widget launch from the root component's initial props
+ * @param launch Launch props, or undefined when the app was not opened from a widget
+ */
+export function setWidgetLaunch(launch: WidgetLaunch | undefined): void {
+  pendingLaunch = launch ?? null;
+}
+
+/**
+ * Listen for widget taps while the app is already running (Android only).
+ * MainActivity is singleTask, so those taps arrive as onWidgetLaunch events
+ * instead of initial props.
+ * @returns Function to remove the native listener
+ */
+export function setupWidgetLaunchListener(): () => void {
+  if (Platform.OS !== "android" || !NativeModules.MealWidgetModule) {
+    return () => {};
+  }
+
+  const subscription = DeviceEventEmitter.addListener(
+    "onWidgetLaunch",
+    (launch: WidgetLaunch) => {
+      if (launchListeners.size === 0) {
+        // No meal screen is mounted; the next one to mount picks it up
+        pendingLaunch = launch;
+        return;
+      }
+      launchListeners.forEach((listener) => listener(launch));
+    }
+  );
+
+  // Deliver a tap that arrived before this listener existed
+  NativeModules.MealWidgetModule.flushWidgetLaunch();
+
+  return () => subscription.remove();
+}
+
+/**
+ * Get notified of widget taps while mounted
+ * @param listener Called with each launch received while the app is running
+ * @returns Function to unsubscribe
+ */
+export function subscribeWidgetLaunch(
+  listener: WidgetLaunchListener
+): () => void {
+  launchListeners.add(listener);
+  return () => {
+    launchListeners.delete(listener);
+  };
+}
+
+/**
+ * Take today's meals from the widget launch snapshot, so the meal screen can
+ * render them on the first frame. The launch is consumed: later mounts fetch normally.
+ * The caller checks the meals' cityId against the app's city before keeping them.
+ * @returns Today's breakfast and dinner from the snapshot, or null if there is nothing usable
+ */
+export function consumeWidgetLaunchMeals(): WidgetLaunchMeals | null {
+  const launch = pendingLaunch;
+  pendingLaunch = null;
+  return getWidgetLaunchMeals(launch);
+}
+
+/**
+ * Turn a widget launch snapshot into today's meals
+ * @param launch Widget launch, or null
+ * @returns Today's breakfast and dinner from the snapshot, or null if there is nothing usable
+ */
+export function getWidgetLaunchMeals(
+  launch: WidgetLaunch | null
+): WidgetLaunchMeals | null {
+  const snapshot = launch?.snapshot;
+  if (!snapshot || snapshot.mealDate !== format(new Date(), "yyyy-MM-dd")) {
+    return null;
+  }
+
+  const meal: Meal = {
+    // Placeholder until the background fetch replaces it with the real meal
+    id: 0,
+    meal_date: snapshot.mealDate,
+    meal_type: snapshot.mealType,
+    city_id: Number(snapshot.cityId) || 0,
+    city_name: snapshot.cityName ?? undefined,
+    dorm_id: null,
+    meal_items: snapshot.items.map((item, index) => ({
+      id: -index - 1,
+      city_menu_id: 0,
+      item_name: item,
+      calories: null,
+      description: null,
+    })),
+    totalCalories: 0,
+  };
+
+  return snapshot.mealType === "BREAKFAST"
+    ? { cityId: snapshot.cityId, breakfast: meal, dinner: null }
+    : { cityId: snapshot.cityId, breakfast: null, dinner: meal };
+}
@@ -0,0 +1,81 @@
+import AsyncStorage from "@react-native-async-storage/async-storage";
+import { Platform, NativeModules } from "react-native";
+import NativeMealWidgetSnapshot from "../specs/NativeMealWidgetSnapshot";
+import { STORAGE_KEYS } from "./widgetConstants";
+
+/**
+ * Schedule last pushed to the native widget store
+ */
+interface PublishedSchedule {
+  cityId: string;
+  date: string;
+  version: number;
+}
+
+/**
+ * Get the version of a city's stored week-ahead schedule (Android only).
+ * New architecture builds read it synchronously through the MealWidgetSnapshot
+ * TurboModule; old architecture builds fall back to the legacy module's promise.
+ * Single-meal versions are counted separately, so they are never returned here.
+ * @param cityId City key
+ * @returns Version, 0 when no schedule is stored, or null when no native module is available
+ */
+export async function getNativeScheduleVersion(
+  cityId: string
+): Promise<number | null> {
+  if (Platform.OS !== "android") {
+    return null;
+  }
+  if (NativeMealWidgetSnapshot) {
+    return NativeMealWidgetSnapshot.getScheduleVersion(cityId);
+  }
+  if (NativeModules.MealWidgetModule) {
+    return NativeModules.MealWidgetModule.getScheduleVersion(cityId);
+  }
+  return null;
+}
+
+// One record per city, since widgets can show cities other than the app's
+function publishedScheduleKey(cityId: string): string {
+  return `${STORAGE_KEYS.PUBLISHED_SCHEDULE}_${cityId}`;
+}
+
+/**
+ * Remember the schedule that was just published, keyed by the version native storage gave it
+ * @param cityId City the schedule belongs to
+ * @param date First day of the schedule, yyyy-MM-dd
+ * @param version Version returned by publishWidgetData
+ */
+export async function rememberPublishedSchedule(
+  cityId: string,
+  date: string,
+  version: number
+): Promise<void> {
+  const published: PublishedSchedule = { cityId, date, version };
+  await AsyncStorage.setItem(
+    publishedScheduleKey(cityId),
+    JSON.stringify(published)
+  );
+}
+
+/**
+ * Whether the widgets still have the schedule published today for the city.
+ * Any later schedule write (the background fetch job, cleared data) changes the
+ * native schedule version, so a stale or missing schedule is always fetched again.
+ * @param cityId City the schedule belongs to
+ * @param date First day the schedule would start at, yyyy-MM-dd
+ */
+export async function isPublishedScheduleCurrent(
+  cityId: string,
+  date: string
+): Promise<boolean> {
+  const stored = await AsyncStorage.getItem(publishedScheduleKey(cityId));
+  if (!stored) {
+    return false;
+  }
+  const published: PublishedSchedule = JSON.parse(stored);
+  if (published.cityId !== cityId || published.date !== date) {
+    return false;
+  }
+  return (await getNativeScheduleVersion(cityId)) === published.version;
+}